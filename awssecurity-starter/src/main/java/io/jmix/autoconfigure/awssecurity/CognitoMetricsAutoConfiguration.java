@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.autoconfigure.awssecurity;
+
+import io.jmix.awssecurity.CognitoProperties;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import io.jmix.awssecurity.metrics.MicrometerCognitoMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnProperty(prefix = "jmix.awssecurity", name = "metrics-enabled", havingValue = "true")
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@AutoConfigureBefore(CognitoSecurityAutoConfiguration.class)
+public class CognitoMetricsAutoConfiguration {
+
+    @Bean("awssec_CognitoMetrics")
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnMissingBean(CognitoMetrics.class)
+    public CognitoMetrics cognitoMetrics(MeterRegistry meterRegistry, CognitoProperties cognitoProperties) {
+        return new MicrometerCognitoMetrics(meterRegistry, cognitoProperties.isMetricsHistogramsEnabled());
+    }
+}
@@ -17,6 +17,7 @@
 package io.jmix.autoconfigure.awssecurity;
 
 import io.jmix.awssecurity.CognitoConfiguration;
+import io.jmix.awssecurity.CognitoReactiveResourceServerConfiguration;
 import io.jmix.awssecurity.CognitoResourceServerConfiguration;
 import io.jmix.awssecurity.CognitoStandardSecurityConfiguration;
 import io.jmix.core.security.AuthorizedUrlsProvider;
@@ -26,17 +27,20 @@ import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 
 @Configuration
 @Import({SecurityConfiguration.class, CognitoConfiguration.class})
 public class CognitoSecurityAutoConfiguration {
 
     @EnableWebSecurity
-    @Conditional(OnUiSecurityPropertiesCondition.class)
+    @Conditional({OnUiSecurityPropertiesCondition.class, OnNonReactiveWebApplicationCondition.class})
     @ConditionalOnMissingBean({StandardSecurityConfiguration.class, CognitoStandardSecurityConfiguration.class})
     public static class DefaultCognitoStandardSecurityConfiguration extends CognitoStandardSecurityConfiguration {
 
@@ -47,10 +51,33 @@ public class CognitoSecurityAutoConfiguration {
             matchIfMissing = true)
     @ConditionalOnBean(AuthorizedUrlsProvider.class)
     @ConditionalOnMissingBean({CognitoResourceServerConfiguration.class})
+    @Conditional(OnNonReactiveWebApplicationCondition.class)
     public static class DefaultCognitoResourceServerConfiguration extends CognitoResourceServerConfiguration {
 
     }
 
+    @EnableWebFluxSecurity
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    @ConditionalOnProperty(prefix = "jmix.awssecurity.api-security", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    @ConditionalOnBean(AuthorizedUrlsProvider.class)
+    @ConditionalOnMissingBean({CognitoReactiveResourceServerConfiguration.class})
+    public static class DefaultCognitoReactiveResourceServerConfiguration
+            extends CognitoReactiveResourceServerConfiguration {
+
+    }
+
+    private static class OnNonReactiveWebApplicationCondition extends NoneNestedConditions {
+
+        OnNonReactiveWebApplicationCondition() {
+            super(ConfigurationPhase.PARSE_CONFIGURATION);
+        }
+
+        @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+        static class ReactiveWebApplication {
+        }
+    }
+
     private static class OnUiSecurityPropertiesCondition extends AllNestedConditions {
 
         OnUiSecurityPropertiesCondition() {
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package awssecurity_beans;
+
+import io.jmix.autoconfigure.awssecurity.CognitoMetricsAutoConfiguration;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import io.jmix.awssecurity.metrics.MicrometerCognitoMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CognitoMetricsAutoConfigurationTest extends CognitoSecurityAutoConfigurationTestBase {
+
+    private final ApplicationContextRunner contextRunner = baseContextRunner
+            .withConfiguration(AutoConfigurations.of(CognitoMetricsAutoConfiguration.class))
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withInitializer(ctx -> TestPropertySourceUtils.addInlinedPropertiesToEnvironment(ctx,
+                    "jmix.awssecurity.api-security.enabled=false",
+                    "jmix.awssecurity.ui-security.enabled=false"
+            ));
+
+    @Test
+    public void testMetricsDisabledByDefault() {
+        contextRunner.run(ctx -> assertThat(ctx).doesNotHaveBean(CognitoMetrics.class));
+    }
+
+    @Test
+    public void testMetricsEnabled() {
+        contextRunner
+                .withInitializer(ctx -> TestPropertySourceUtils.addInlinedPropertiesToEnvironment(ctx,
+                        "jmix.awssecurity.metrics-enabled=true"))
+                .run(ctx -> {
+                    assertThat(ctx).hasSingleBean(CognitoMetrics.class);
+                    assertThat(ctx.getBean("awssec_CognitoMetrics")).isInstanceOf(MicrometerCognitoMetrics.class);
+                    assertThat(ctx.getBean(MeterRegistry.class).find(CognitoMetrics.CACHE + ".gets")
+                            .tag("cache", "groups").counters()).hasSize(2);
+                });
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package awssecurity_beans;
+
+import io.jmix.autoconfigure.awssecurity.CognitoSecurityAutoConfiguration;
+import io.jmix.autoconfigure.core.CoreAutoConfiguration;
+import io.jmix.awssecurity.CognitoReactiveResourceServerConfiguration;
+import io.jmix.core.security.InMemoryUserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CognitoReactiveResourceServerAutoConfigurationTest {
+
+    private final ReactiveWebApplicationContextRunner baseContextRunner = new ReactiveWebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(CacheAutoConfiguration.class,
+                    CoreAutoConfiguration.class,
+                    CognitoSecurityAutoConfiguration.class))
+            .withBean(InMemoryUserRepository.class)
+            .withBean("awssec_ReactiveJwtDecoder", ReactiveJwtDecoder.class, () -> Mockito.mock(ReactiveJwtDecoder.class))
+            .withAllowBeanDefinitionOverriding(true);
+
+    @Test
+    public void testReactiveResourceServerEnabledWithAuthorizedUrls() {
+        ReactiveWebApplicationContextRunner contextRunner = baseContextRunner
+                .withBean(CognitoSecurityAutoConfigurationTestBase.TestAuthorizedUrlsProvider.class);
+
+        contextRunner.run(ctx -> {
+            assertThat(ctx).hasSingleBean(CognitoReactiveResourceServerConfiguration.class);
+            assertThat(ctx).hasSingleBean(SecurityWebFilterChain.class);
+            assertThat(ctx).doesNotHaveBean(WebSecurityConfigurerAdapter.class);
+        });
+    }
+
+    @Test
+    public void testReactiveResourceServerDisabled() {
+        ReactiveWebApplicationContextRunner contextRunner = baseContextRunner
+                .withInitializer(ctx -> TestPropertySourceUtils.addInlinedPropertiesToEnvironment(ctx,
+                        "jmix.awssecurity.api-security.enabled=false"))
+                .withBean(CognitoSecurityAutoConfigurationTestBase.TestAuthorizedUrlsProvider.class);
+
+        contextRunner.run(ctx -> {
+            assertThat(ctx).doesNotHaveBean(CognitoReactiveResourceServerConfiguration.class);
+            assertThat(ctx).doesNotHaveBean(WebSecurityConfigurerAdapter.class);
+        });
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package startup_benchmark;
+
+import awssecurity_beans.CognitoSecurityAutoConfigurationTestBase.TestAuthorizedUrlsProvider;
+import io.jmix.autoconfigure.awssecurity.CognitoSecurityAutoConfiguration;
+import io.jmix.autoconfigure.core.CoreAutoConfiguration;
+import io.jmix.core.security.InMemoryUserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures startup time and allocated bytes of contexts with Cognito auto-configuration for each combination
+ * of UI security, API security and IdP state. A cold IdP is requested on startup with the given latency,
+ * a warm IdP is served from metadata snapshots saved by a previous start.
+ * <p>
+ * Run with <code>./gradlew :awssecurity-starter:startupBenchmark</code>. Results are printed and saved to
+ * <code>build/reports/startup-benchmark/startup.csv</code>.
+ * <p>
+ * Allocated bytes are summed over all live threads between the start and the moment the context is ready,
+ * so background initialization is included. Threads that finish before the context is ready are not counted.
+ * The mock IdP runs in the same JVM, its allocations for the few requests made on a cold start are included.
+ */
+@Tag("benchmark")
+public class CognitoStartupBenchmark {
+
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("benchmark.warmupIterations", 2);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 5);
+    private static final long IDP_LATENCY_MS = Long.getLong("benchmark.idpLatencyMs", 100);
+
+    private static final List<String> results = Collections.synchronizedList(new ArrayList<>());
+
+    private static MockCognitoServer cognito;
+    private static Path workDir;
+
+    @BeforeAll
+    static void startCognito() throws Exception {
+        cognito = new MockCognitoServer(IDP_LATENCY_MS);
+        workDir = Files.createTempDirectory("awssec-benchmark");
+    }
+
+    @AfterAll
+    static void report() throws IOException {
+        cognito.close();
+        List<String> lines = new ArrayList<>();
+        lines.add("ui,api,idp,startup_ms,allocated_mb,idp_requests");
+        lines.addAll(results);
+        lines.forEach(System.out::println);
+        String reportDir = System.getProperty("benchmark.reportDir");
+        if (reportDir != null) {
+            Path dir = Files.createDirectories(Paths.get(reportDir));
+            Files.write(dir.resolve("startup.csv"), lines, StandardCharsets.UTF_8);
+        }
+    }
+
+    static Stream<Arguments> configurations() {
+        List<Arguments> arguments = new ArrayList<>();
+        for (boolean ui : new boolean[]{false, true}) {
+            for (boolean api : new boolean[]{false, true}) {
+                for (boolean warm : new boolean[]{false, true}) {
+                    arguments.add(Arguments.of(ui, api, warm));
+                }
+            }
+        }
+        return arguments.stream();
+    }
+
+    @ParameterizedTest(name = "ui={0}, api={1}, warmIdp={2}")
+    @MethodSource("configurations")
+    void startup(boolean ui, boolean api, boolean warm) {
+        WebApplicationContextRunner contextRunner = createContextRunner(ui, api, warm);
+        if (warm) {
+            contextRunner.run(ctx -> assertThat(ctx).hasNotFailed());
+        }
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            contextRunner.run(ctx -> assertThat(ctx).hasNotFailed());
+        }
+
+        long[] durations = new long[ITERATIONS];
+        long[] allocations = new long[ITERATIONS];
+        int requestsBefore = cognito.getRequestCount();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Map<Long, Long> allocatedBefore = allocatedBytesByThread();
+            long start = System.nanoTime();
+            int iteration = i;
+            contextRunner.run(ctx -> {
+                durations[iteration] = System.nanoTime() - start;
+                allocations[iteration] = allocatedBytesSince(allocatedBefore);
+                assertThat(ctx).hasNotFailed();
+            });
+        }
+        int requests = cognito.getRequestCount() - requestsBefore;
+
+        results.add(String.format("%s,%s,%s,%.1f,%.1f,%.1f",
+                ui ? "on" : "off", api ? "on" : "off", warm ? "warm" : "cold",
+                median(durations) / 1e6, median(allocations) / (1024.0 * 1024.0), (double) requests / ITERATIONS));
+    }
+
+    private WebApplicationContextRunner createContextRunner(boolean ui, boolean api, boolean warm) {
+        return new WebApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(CacheAutoConfiguration.class,
+                        CoreAutoConfiguration.class,
+                        SecurityAutoConfiguration.class,
+                        CognitoSecurityAutoConfiguration.class))
+                .withBean(InMemoryUserRepository.class)
+                .withBean(TestAuthorizedUrlsProvider.class)
+                .withAllowBeanDefinitionOverriding(true)
+                .withPropertyValues(
+                        "jmix.core.work-dir=" + workDir.resolve(ui + "-" + api),
+                        "jmix.awssecurity.region=eu-west-1",
+                        "jmix.awssecurity.user-pool-id=" + MockCognitoServer.USER_POOL,
+                        "jmix.awssecurity.issuer=" + cognito.getIssuerUri(),
+                        "jmix.awssecurity.client-id=benchmark_client",
+                        "jmix.awssecurity.domain=" + cognito.getBaseUrl(),
+                        "jmix.awssecurity.ui-security.enabled=" + ui,
+                        "jmix.awssecurity.api-security.enabled=" + api,
+                        "jmix.awssecurity.metadata-snapshot-enabled=" + warm);
+    }
+
+    private static Map<Long, Long> allocatedBytesByThread() {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] threadIds = threadMXBean.getAllThreadIds();
+        long[] allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadIds);
+        Map<Long, Long> result = new HashMap<>();
+        for (int i = 0; i < threadIds.length; i++) {
+            if (allocatedBytes[i] >= 0) {
+                result.put(threadIds[i], allocatedBytes[i]);
+            }
+        }
+        return result;
+    }
+
+    private static long allocatedBytesSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : allocatedBytesByThread().entrySet()) {
+            total += entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package startup_benchmark;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.mockserver.integration.ClientAndServer;
+import org.mockserver.model.Delay;
+import org.springframework.util.SocketUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+/**
+ * Local Cognito on MockServer, as in module tests, serving discovery document and JWK set of a user pool.
+ * Each response is delayed by the given latency to model a remote IdP.
+ */
+public class MockCognitoServer implements AutoCloseable {
+
+    public static final String USER_POOL = "benchmark_user_pool";
+
+    private final int port;
+    private final ClientAndServer server;
+
+    public MockCognitoServer(long latencyMillis) throws JOSEException {
+        String jwks = new JWKSet(new RSAKeyGenerator(2048).keyID("benchmark").generate()).toString(true);
+        Delay latency = new Delay(TimeUnit.MILLISECONDS, latencyMillis);
+        port = SocketUtils.findAvailableTcpPort();
+        server = ClientAndServer.startClientAndServer(port);
+        server.when(request()
+                .withMethod("GET")
+                .withPath("/" + USER_POOL + "/.well-known/openid-configuration")
+        ).respond(response(discoveryDocument())
+                .withHeader("Content-Type", "application/json")
+                .withDelay(latency)
+        );
+        server.when(request()
+                .withMethod("GET")
+                .withPath("/" + USER_POOL + "/.well-known/jwks.json")
+        ).respond(response(jwks)
+                .withHeader("Content-Type", "application/json")
+                .withDelay(latency)
+        );
+    }
+
+    public String getIssuerUri() {
+        return getBaseUrl() + "/" + USER_POOL;
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    public int getRequestCount() {
+        return server.retrieveRecordedRequests(request().withPath("/" + USER_POOL + "/.*")).length;
+    }
+
+    private String discoveryDocument() {
+        String baseUrl = getBaseUrl();
+        return "{"
+                + "\"issuer\": \"" + getIssuerUri() + "\","
+                + "\"authorization_endpoint\": \"" + baseUrl + "/oauth2/authorize\","
+                + "\"token_endpoint\": \"" + baseUrl + "/oauth2/token\","
+                + "\"userinfo_endpoint\": \"" + baseUrl + "/oauth2/userInfo\","
+                + "\"jwks_uri\": \"" + getIssuerUri() + "/.well-known/jwks.json\","
+                + "\"response_types_supported\": [\"code\", \"token\"],"
+                + "\"subject_types_supported\": [\"public\"],"
+                + "\"id_token_signing_alg_values_supported\": [\"RS256\"],"
+                + "\"token_endpoint_auth_methods_supported\": [\"client_secret_basic\", \"client_secret_post\"]"
+                + "}";
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+}
@@ -21,8 +21,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
-import org.springframework.security.oauth2.client.registration.ClientRegistrations;
 import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
 
 @Configuration
 public class CognitoClientRegistrationConfiguration {
@@ -30,18 +35,48 @@ public class CognitoClientRegistrationConfiguration {
     @Autowired
     private CognitoProperties properties;
 
+    @Autowired
+    private CognitoDiscoveryDocumentProvider discoveryDocumentProvider;
+
     @Bean("awssec_ClientRegistrationRepository")
     public ClientRegistrationRepository clientRegistrationRepository() {
         return new InMemoryClientRegistrationRepository(cognitoClientRegistration());
     }
 
     public ClientRegistration cognitoClientRegistration() {
-        return ClientRegistrations.fromIssuerLocation(properties.getIssuerUri())
-                .registrationId("cognito")
+        Map<String, Object> metadata = discoveryDocumentProvider.getDiscoveryDocument(properties.getIssuerUri());
+        return ClientRegistration.withRegistrationId("cognito")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .clientAuthenticationMethod(getClientAuthenticationMethod(metadata))
+                .redirectUri("{baseUrl}/{action}/oauth2/code/{registrationId}")
+                .authorizationUri(getString(metadata, "authorization_endpoint"))
+                .tokenUri(getString(metadata, "token_endpoint"))
+                .jwkSetUri(getString(metadata, "jwks_uri"))
+                .userInfoUri(getString(metadata, "userinfo_endpoint"))
+                .issuerUri(getString(metadata, "issuer"))
+                .providerConfigurationMetadata(metadata)
                 .clientId(properties.getClientId())
                 .clientSecret(properties.getClientSecret())
                 .scope("openid")
                 .userNameAttributeName("cognito:username")
                 .build();
     }
+
+    protected ClientAuthenticationMethod getClientAuthenticationMethod(Map<String, Object> metadata) {
+        Object supportedMethods = metadata.get("token_endpoint_auth_methods_supported");
+        if (!(supportedMethods instanceof Collection)
+                || ((Collection<?>) supportedMethods).contains(ClientAuthenticationMethod.CLIENT_SECRET_BASIC.getValue())) {
+            return ClientAuthenticationMethod.CLIENT_SECRET_BASIC;
+        }
+        if (((Collection<?>) supportedMethods).contains(ClientAuthenticationMethod.CLIENT_SECRET_POST.getValue())) {
+            return ClientAuthenticationMethod.CLIENT_SECRET_POST;
+        }
+        return ClientAuthenticationMethod.NONE;
+    }
+
+    @Nullable
+    private String getString(Map<String, Object> metadata, String name) {
+        Object value = metadata.get(name);
+        return value != null ? value.toString() : null;
+    }
 }
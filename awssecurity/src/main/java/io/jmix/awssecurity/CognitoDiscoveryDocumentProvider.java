@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity;
+
+import com.nimbusds.jose.util.JSONObjectUtils;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import io.jmix.core.annotation.Internal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Provides OpenID Connect discovery document of Cognito user pool.
+ * <p>
+ * If there is a valid snapshot saved by {@link CognitoSnapshotStore}, the document is taken from the snapshot
+ * and revalidated against Cognito in background. Otherwise the document is retrieved from
+ * <code>{issuerUri}/.well-known/openid-configuration</code>. Failed requests are retried with exponential backoff
+ * as defined by {@link CognitoProperties#getDiscoveryMaxAttempts()} and
+ * {@link CognitoProperties#getDiscoveryRetryBackoff()}.
+ * <p>
+ * The document is retrieved once per issuer and shared by client registration and JWT decoders. Concurrent callers
+ * wait for the retrieval of the same issuer only, a failed retrieval is not cached.
+ */
+@Internal
+@Component("awssec_CognitoDiscoveryDocumentProvider")
+public class CognitoDiscoveryDocumentProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(CognitoDiscoveryDocumentProvider.class);
+
+    private static final String OIDC_METADATA_PATH = "/.well-known/openid-configuration";
+
+    @Autowired
+    protected CognitoSnapshotStore snapshotStore;
+
+    @Autowired
+    protected CognitoScheduler scheduler;
+
+    @Autowired(required = false)
+    protected CognitoMetrics metrics = CognitoMetrics.NOOP;
+
+    @Autowired
+    protected CognitoHttpClient httpClient;
+
+    @Autowired
+    protected CognitoProperties properties;
+
+    protected RestOperations restOperations;
+
+    private final ConcurrentMap<String, Future<Map<String, Object>>> documents = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    protected void init() {
+        restOperations = httpClient.createRestTemplate();
+    }
+
+    /**
+     * Returns discovery document of the given issuer.
+     *
+     * @param issuerUri Cognito user pool issuer URI
+     * @return discovery document claims
+     * @throws IllegalArgumentException if the document cannot be retrieved
+     * @throws IllegalStateException    if issuer of the document does not match the requested one
+     */
+    public Map<String, Object> getDiscoveryDocument(String issuerUri) {
+        Future<Map<String, Object>> future = documents.get(issuerUri);
+        if (future == null) {
+            FutureTask<Map<String, Object>> task = new FutureTask<>(() -> loadDiscoveryDocument(issuerUri));
+            future = documents.putIfAbsent(issuerUri, task);
+            if (future == null) {
+                future = task;
+                task.run();
+            }
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            documents.remove(issuerUri, future);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrieving discovery document", e);
+        }
+    }
+
+    protected Map<String, Object> loadDiscoveryDocument(String issuerUri) {
+        String snapshot = snapshotStore.load(CognitoSnapshotStore.OPENID_CONFIGURATION, issuerUri);
+        if (snapshot != null) {
+            try {
+                Map<String, Object> document = parse(issuerUri, snapshot);
+                scheduler.getExecutor().execute(() -> revalidate(issuerUri));
+                return document;
+            } catch (RuntimeException e) {
+                log.warn("Ignoring snapshot of {} discovery document: {}", issuerUri, e.toString());
+            }
+        }
+        return fetch(issuerUri);
+    }
+
+    protected Map<String, Object> fetch(String issuerUri) {
+        URI uri = UriComponentsBuilder.fromUriString(issuerUri)
+                .path(OIDC_METADATA_PATH)
+                .build()
+                .toUri();
+        RequestEntity<Void> request = RequestEntity.get(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .build();
+        String body = null;
+        long backoff = properties.getDiscoveryRetryBackoff().toMillis();
+        int maxAttempts = Math.max(properties.getDiscoveryMaxAttempts(), 1);
+        for (int attempt = 1; body == null; attempt++) {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                body = restOperations.exchange(request, String.class).getBody();
+                if (body == null) {
+                    throw new IllegalArgumentException("Empty discovery document of \"" + issuerUri + "\"");
+                }
+                success = true;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw new IllegalArgumentException("Unable to resolve the Configuration "
+                            + "with the provided Issuer of \"" + issuerUri + "\"", e);
+                }
+                log.debug("Unable to retrieve {} discovery document, attempt {} of {}: {}",
+                        issuerUri, attempt, maxAttempts, e.toString());
+                sleep(backoff);
+                backoff *= 2;
+            } finally {
+                metrics.recordTime(CognitoMetrics.DISCOVERY_FETCH, System.nanoTime() - start, success);
+            }
+        }
+        Map<String, Object> document = parse(issuerUri, body);
+        snapshotStore.save(CognitoSnapshotStore.OPENID_CONFIGURATION, issuerUri, body);
+        return document;
+    }
+
+    /**
+     * Returns whether a request failed with the given exception should be retried.
+     *
+     * @see CognitoRequestFailures#isRetryable(RuntimeException)
+     */
+    protected boolean isRetryable(RuntimeException e) {
+        return CognitoRequestFailures.isRetryable(e);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrieving discovery document", e);
+        }
+    }
+
+    private void revalidate(String issuerUri) {
+        try {
+            documents.put(issuerUri, CompletableFuture.completedFuture(fetch(issuerUri)));
+        } catch (RuntimeException e) {
+            log.warn("Unable to revalidate {} discovery document: {}", issuerUri, e.toString());
+        }
+    }
+
+    private Map<String, Object> parse(String issuerUri, @Nullable String body) {
+        if (body == null) {
+            throw new IllegalArgumentException("Empty discovery document of \"" + issuerUri + "\"");
+        }
+        Map<String, Object> document;
+        try {
+            document = JSONObjectUtils.parse(body);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Unable to parse discovery document of \"" + issuerUri + "\"", e);
+        }
+        Object issuer = document.get("issuer");
+        if (!issuerUri.equals(issuer)) {
+            throw new IllegalStateException("The Issuer \"" + issuer + "\" provided in the configuration "
+                    + "did not match the requested issuer \"" + issuerUri + "\"");
+        }
+        return document;
+    }
+}
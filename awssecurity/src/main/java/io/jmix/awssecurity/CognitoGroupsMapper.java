@@ -16,7 +16,19 @@
 
 package io.jmix.awssecurity;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.jmix.awssecurity.mapping.CognitoGroupRoleMapping;
+import io.jmix.awssecurity.mapping.MappedRole;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import io.jmix.core.Metadata;
 import io.jmix.core.annotation.Internal;
+import io.jmix.core.event.EntityChangedEvent;
 import io.jmix.security.authentication.RoleGrantedAuthority;
 import io.jmix.security.model.ResourceRole;
 import io.jmix.security.model.RowLevelRole;
@@ -26,56 +38,182 @@ import io.jmix.security.role.assignment.RoleAssignmentRoleType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Maps list of Cognito user groups names to {@link GrantedAuthority} objects.
- * Group is treated as resource or row-level role based on prefix:
+ * Roles of each group are defined by {@link CognitoGroupRoleMapping}. By default, group is treated as resource
+ * or row-level role based on prefix:
  * <ul>
  *     <li><i>resource$</i> for resource roles;</li>
  *     <li><i>row_level$</i> for row-level roles.</li>
  * </ul>
+ * Resolved authorities are cached according to {@link CognitoProperties#getGroupsCacheMaxSize()} and
+ * {@link CognitoProperties#getGroupsCacheTtl()}, whole group sets are cached as shared immutable lists
+ * according to {@link CognitoProperties#getGroupSetsCacheMaxSize()}. The caches are cleared after a transaction
+ * changing roles or policies stored in the database is committed.
  */
 @Internal
 @Component("awssec_CognitoGroupsMapper")
 public class CognitoGroupsMapper {
 
+    private static final Set<String> ROLE_ENTITIES = new HashSet<>(Arrays.asList(
+            "sec_ResourceRoleEntity", "sec_ResourcePolicyEntity",
+            "sec_RowLevelRoleEntity", "sec_RowLevelPolicyEntity"));
+
     @Autowired
     private ResourceRoleRepository resourceRoleRepository;
 
     @Autowired
     private RowLevelRoleRepository rowLevelRoleRepository;
 
+    @Autowired
+    private CognitoProperties properties;
+
+    @Autowired
+    private Metadata metadata;
+
+    @Autowired
+    private CognitoGroupRoleMapping groupRoleMapping;
+
+    @Autowired(required = false)
+    private CognitoMetrics metrics = CognitoMetrics.NOOP;
+
+    private final Interner<String> groupNames = Interners.newWeakInterner();
+
+    private Cache<String, List<GrantedAuthority>> authorities;
+    private Cache<Set<String>, List<GrantedAuthority>> groupSetAuthorities;
+
+    @PostConstruct
+    protected void init() {
+        authorities = CacheBuilder.newBuilder()
+                .maximumSize(properties.getGroupsCacheMaxSize())
+                .expireAfterWrite(properties.getGroupsCacheTtl().toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        groupSetAuthorities = CacheBuilder.newBuilder()
+                .maximumSize(properties.getGroupSetsCacheMaxSize())
+                .expireAfterWrite(properties.getGroupsCacheTtl().toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        metrics.bindCache("groups", authorities::stats);
+        metrics.bindCache("group-sets", groupSetAuthorities::stats);
+    }
+
+    /**
+     * Returns the first authority of the given group.
+     *
+     * @deprecated group can be mapped to several roles, use {@link #getGroupAuthorities(String)}
+     */
+    @Deprecated
     @Nullable
     public GrantedAuthority createAuthority(String group) {
-        int separator = group.indexOf('$');
-        if (separator >= 0) {
-            String roleType = group.substring(0, separator);
-            String roleCode = group.substring(separator + 1);
-            if (RoleAssignmentRoleType.RESOURCE.equals(roleType)) {
-                ResourceRole role = resourceRoleRepository.findRoleByCode(roleCode);
+        List<GrantedAuthority> groupAuthorities = getGroupAuthorities(group);
+        return groupAuthorities.isEmpty() ? null : groupAuthorities.get(0);
+    }
+
+    /**
+     * Returns authorities of roles the given group is mapped to by {@link CognitoGroupRoleMapping}.
+     */
+    public List<GrantedAuthority> getGroupAuthorities(String group) {
+        try {
+            return authorities.get(group, () -> resolveGroupAuthorities(group));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * Returns authorities of the given groups. Users having the same set of groups share
+     * the same immutable list of authorities.
+     */
+    public List<GrantedAuthority> createAuthorities(Collection<String> groups) {
+        if (groups.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ImmutableSortedSet.Builder<String> builder = ImmutableSortedSet.naturalOrder();
+        for (String group : groups) {
+            builder.add(groupNames.intern(group));
+        }
+        ImmutableSortedSet<String> groupSet = builder.build();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<GrantedAuthority> result = groupSetAuthorities.get(groupSet, () -> resolveAuthorities(groupSet));
+            success = true;
+            return result;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            metrics.recordTime(CognitoMetrics.GROUPS_MAPPING, System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Discards cached authorities.
+     */
+    public void invalidate() {
+        groupSetAuthorities.invalidateAll();
+        authorities.invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    protected void onEntityChanged(EntityChangedEvent<?> event) {
+        if (ROLE_ENTITIES.contains(metadata.getClass(event.getEntityId().getEntityClass()).getName())) {
+            invalidate();
+        }
+    }
+
+    protected List<GrantedAuthority> resolveGroupAuthorities(String group) {
+        Collection<MappedRole> roles = groupRoleMapping.getRoles(group);
+        if (roles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ImmutableList.Builder<GrantedAuthority> builder = ImmutableList.builder();
+        for (MappedRole mappedRole : roles) {
+            if (RoleAssignmentRoleType.RESOURCE.equals(mappedRole.getRoleType())) {
+                ResourceRole role = resourceRoleRepository.findRoleByCode(mappedRole.getRoleCode());
                 if (role != null) {
-                    return RoleGrantedAuthority.ofResourceRole(role);
+                    builder.add(RoleGrantedAuthority.ofResourceRole(role));
                 }
-            } else if (RoleAssignmentRoleType.ROW_LEVEL.equals(roleType)) {
-                RowLevelRole role = rowLevelRoleRepository.findRoleByCode(roleCode);
+            } else if (RoleAssignmentRoleType.ROW_LEVEL.equals(mappedRole.getRoleType())) {
+                RowLevelRole role = rowLevelRoleRepository.findRoleByCode(mappedRole.getRoleCode());
                 if (role != null) {
-                    return RoleGrantedAuthority.ofRowLevelRole(role);
+                    builder.add(RoleGrantedAuthority.ofRowLevelRole(role));
                 }
             }
         }
-        return null;
+        return builder.build();
     }
 
-    public List<GrantedAuthority> createAuthorities(Collection<String> groups) {
-        return groups.stream()
-                .map(this::createAuthority)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    protected List<GrantedAuthority> resolveAuthorities(Set<String> groups) {
+        Set<GrantedAuthority> result = new LinkedHashSet<>();
+        for (String group : groups) {
+            result.addAll(getGroupAuthorities(group));
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    private RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException("Unable to resolve authorities of Cognito groups", cause);
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity;
+
+import io.jmix.core.annotation.Internal;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled HTTP client used for all requests to Cognito: discovery, JWK set, token and userinfo endpoints.
+ * Timeouts and pool sizes are defined by {@link CognitoProperties}. The client is created on first use.
+ */
+@Internal
+@Component("awssec_CognitoHttpClient")
+public class CognitoHttpClient implements DisposableBean {
+
+    @Autowired
+    protected CognitoProperties properties;
+
+    private CloseableHttpClient httpClient;
+    private volatile ClientHttpRequestFactory requestFactory;
+
+    /**
+     * Returns request factory backed by the pooled client.
+     */
+    public ClientHttpRequestFactory getRequestFactory() {
+        ClientHttpRequestFactory result = requestFactory;
+        if (result == null) {
+            synchronized (this) {
+                result = requestFactory;
+                if (result == null) {
+                    httpClient = createHttpClient();
+                    result = requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates new {@link RestTemplate} that uses the pooled client. Message converters and error handler
+     * of the returned template can be customized by the caller.
+     */
+    public RestTemplate createRestTemplate() {
+        return new RestTemplate(getRequestFactory());
+    }
+
+    protected CloseableHttpClient createHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                properties.getHttpConnectionTtl().toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(properties.getHttpMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getHttpMaxConnectionsPerRoute());
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) properties.getHttpConnectTimeout().toMillis())
+                .setConnectionRequestTimeout((int) properties.getHttpConnectTimeout().toMillis())
+                .setSocketTimeout((int) properties.getHttpReadTimeout().toMillis())
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .useSystemProperties()
+                .build();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        synchronized (this) {
+            if (httpClient != null) {
+                httpClient.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts {@link GrantedAuthority} objects from <code>cognito:groups</code> claim of Cognito access token
+ * using {@link CognitoGroupsMapper}.
+ */
+public class CognitoJwtGrantedAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
+
+    public static final String GROUPS_CLAIM = "cognito:groups";
+
+    private final CognitoGroupsMapper cognitoGroupsMapper;
+
+    public CognitoJwtGrantedAuthoritiesConverter(CognitoGroupsMapper cognitoGroupsMapper) {
+        this.cognitoGroupsMapper = cognitoGroupsMapper;
+    }
+
+    @Override
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        List<String> groups = jwt.getClaimAsStringList(GROUPS_CLAIM);
+        return groups != null ? cognitoGroupsMapper.createAuthorities(groups) : Collections.emptyList();
+    }
+}
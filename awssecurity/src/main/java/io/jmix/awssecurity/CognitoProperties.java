@@ -22,7 +22,12 @@ import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @ConfigurationProperties("jmix.awssecurity")
@@ -59,24 +64,401 @@ public class CognitoProperties {
      */
     private final String domain;
 
+    /**
+     * Whether successfully decoded API access tokens should be cached until they expire.
+     */
+    private final boolean jwtCacheEnabled;
+
+    /**
+     * Maximum number of decoded access tokens kept in the cache.
+     */
+    private final long jwtCacheMaxSize;
+
+    /**
+     * Interval of background refresh of the user pool JWK set.
+     */
+    private final Duration jwksRefreshInterval;
+
+    /**
+     * Maximum age of the cached JWK set that can still be used when it cannot be refreshed.
+     */
+    private final Duration jwksMaxStaleness;
+
+    /**
+     * Whether JWK set URI is resolved through OpenID Connect discovery when API token decoder is created.
+     * If disabled, the URI is derived from {@link #issuerUri} and the decoder is created lazily on the first request.
+     */
+    private final boolean jwksDiscoveryEnabled;
+
+    /**
+     * Whether the last retrieved discovery document and JWK set are saved to the work directory and used
+     * on application startup and when Cognito is not available.
+     */
+    private final boolean metadataSnapshotEnabled;
+
+    /**
+     * Maximum age of the saved discovery document and JWK set snapshots that can be used on startup.
+     */
+    private final Duration metadataSnapshotMaxAge;
+
+    /**
+     * Whether API access tokens are checked for expiration, issuer, token use and app client before
+     * signature verification, so obviously invalid tokens are rejected cheaply.
+     */
+    private final boolean jwtPrecheckEnabled;
+
+    /**
+     * Maximum length of API access token accepted by the precheck.
+     */
+    private final int jwtMaxLength;
+
+    /**
+     * App client ids whose access tokens are accepted by API endpoints when precheck is enabled.
+     * Tokens of any app client are accepted if not specified.
+     */
+    private final List<String> jwtClientIds;
+
+    /**
+     * Whether API access tokens that failed verification are remembered and rejected without verifying again.
+     */
+    private final boolean jwtNegativeCacheEnabled;
+
+    /**
+     * How long a token that failed verification is rejected without verifying again.
+     */
+    private final Duration jwtNegativeCacheTtl;
+
+    /**
+     * Maximum number of remembered tokens that failed verification.
+     */
+    private final long jwtNegativeCacheMaxSize;
+
+    /**
+     * Identifiers of other user pools in the same region whose access tokens are accepted by API endpoints.
+     */
+    private final List<String> additionalUserPoolIds;
+
+    /**
+     * Issuer URIs of all user pools whose access tokens are accepted by API endpoints.
+     */
+    private final List<String> issuerUris;
+
+    /**
+     * Maximum number of Cognito groups whose resolved authorities are cached. Zero disables the cache.
+     */
+    private final long groupsCacheMaxSize;
+
+    /**
+     * How long resolved authorities of a Cognito group are cached.
+     */
+    private final Duration groupsCacheTtl;
+
+    /**
+     * Maximum number of distinct Cognito group sets whose authorities are cached. Zero disables the cache.
+     */
+    private final long groupSetsCacheMaxSize;
+
+    /**
+     * Roles assigned to members of Cognito groups. Keys are group names that may contain <code>*</code> wildcards,
+     * values are lists of roles in the <code>resource$code</code> or <code>row_level$code</code> form.
+     */
+    private final Map<String, List<String>> groupMappings;
+
+    /**
+     * Alternative names of Cognito groups. Keys are aliases, values are group names used in {@link #groupMappings}.
+     */
+    private final Map<String, String> groupAliases;
+
+    /**
+     * Whether groups named <code>resource$code</code> or <code>row_level$code</code> are mapped to the
+     * corresponding roles.
+     */
+    private final boolean groupPrefixConventionEnabled;
+
+    /**
+     * Whether timings and cache statistics are published to Micrometer meter registry, if it is available.
+     */
+    private final boolean metricsEnabled;
+
+    /**
+     * Whether published timers include percentile histograms.
+     */
+    private final boolean metricsHistogramsEnabled;
+
+    /**
+     * Claims of API access tokens kept in decoded tokens in addition to the ones used by the add-on.
+     * All claims are kept if not specified.
+     */
+    private final List<String> jwtRetainedClaims;
+
+    /**
+     * Whether Backoffice UI user is created from ID token claims without requesting Cognito userinfo endpoint.
+     */
+    private final boolean idTokenUserEnabled;
+
+    /**
+     * User attributes that should be loaded from Cognito userinfo endpoint if they are missing in ID token.
+     * Used only if {@link #idTokenUserEnabled} is set.
+     */
+    private final List<String> userInfoAttributes;
+
+    /**
+     * Timeout of establishing connection to Cognito endpoints and of obtaining connection from the pool.
+     */
+    private final Duration httpConnectTimeout;
+
+    /**
+     * Timeout of waiting for data from Cognito endpoints.
+     */
+    private final Duration httpReadTimeout;
+
+    /**
+     * Maximum number of pooled connections to Cognito endpoints.
+     */
+    private final int httpMaxConnections;
+
+    /**
+     * Maximum number of pooled connections to a single Cognito host.
+     */
+    private final int httpMaxConnectionsPerRoute;
+
+    /**
+     * Maximum lifetime of pooled connections to Cognito endpoints.
+     */
+    private final Duration httpConnectionTtl;
+
+    /**
+     * Whether Backoffice UI authentication stored in the session is replaced with a compact serializable
+     * representation that keeps only user name, selected attributes, Cognito groups and scopes.
+     * Role authorities are rebuilt from groups after deserialization.
+     */
+    private final boolean compactPrincipalEnabled;
+
+    /**
+     * User attributes kept by the compact principal.
+     */
+    private final List<String> compactPrincipalAttributes;
+
+    /**
+     * Whether OAuth2 authorized clients of Backoffice UI users are kept in a bounded in-memory store keyed
+     * by principal name instead of the HTTP session.
+     */
+    private final boolean authorizedClientStoreEnabled;
+
+    /**
+     * How long an authorized client is kept in the in-memory store after the last access.
+     */
+    private final Duration authorizedClientsTtl;
+
+    /**
+     * Maximum number of authorized clients kept in the in-memory store.
+     */
+    private final long authorizedClientsMaxSize;
+
+    /**
+     * Whether access tokens of Backoffice UI users are renewed in background shortly before expiry using refresh
+     * tokens. Requires {@link #authorizedClientStoreEnabled} or {@link #statelessEnabled}, otherwise the renewal
+     * is not started.
+     */
+    private final boolean tokenRenewalEnabled;
+
+    /**
+     * How long before expiry an access token is renewed.
+     */
+    private final Duration tokenRenewalWindow;
+
+    /**
+     * Interval between checks for access tokens to renew.
+     */
+    private final Duration tokenRenewalInterval;
+
+    /**
+     * Whether Backoffice UI authentication is kept in an encrypted cookie instead of the HTTP session. The cookie
+     * holds compact principal with Cognito groups, role authorities are rebuilt on each request. Also keeps OAuth2
+     * authorization request and saved request in cookies and authorized clients in the in-memory store.
+     */
+    private final boolean statelessEnabled;
+
+    /**
+     * Secret used to derive the cookie encryption key. Must be the same on all nodes and is required
+     * if {@link #statelessEnabled} is set.
+     */
+    private final String statelessCookieSecret;
+
+    /**
+     * How long the authentication cookie is valid after login or after it is reissued. The cookie is reissued
+     * on a request made after half of this time, so that active users stay logged in.
+     */
+    private final Duration statelessCookieTtl;
+
+    /**
+     * Maximum number of attempts to retrieve the discovery document of a user pool.
+     */
+    private final int discoveryMaxAttempts;
+
+    /**
+     * Delay before the second attempt to retrieve the discovery document, doubled for each following attempt.
+     */
+    private final Duration discoveryRetryBackoff;
+
+    /**
+     * Whether refresh token of Backoffice UI user is revoked on logout. Revocation is performed in background
+     * and does not delay the logout.
+     */
+    private final boolean tokenRevocationEnabled;
+
+    /**
+     * Maximum number of attempts to revoke a refresh token.
+     */
+    private final int tokenRevocationMaxAttempts;
+
+    /**
+     * Maximum number of refresh tokens waiting for revocation.
+     */
+    private final int tokenRevocationQueueCapacity;
+
+    /**
+     * Whether API access tokens are checked against {@link io.jmix.awssecurity.revocation.RevokedTokenRegistry}.
+     * If set, the subject of a Backoffice UI user is also revoked on logout.
+     */
+    private final boolean jwtRevocationEnabled;
+
+    /**
+     * How long a subject revocation is kept. Should not be less than the access token validity of the app client.
+     */
+    private final Duration jwtRevocationRetention;
+
+    /**
+     * Expected number of revocations per time bucket of the revoked token registry. The registry keeps
+     * revocations in 24 buckets covering {@link #jwtRevocationRetention}.
+     */
+    private final long jwtRevocationExpectedInsertions;
+
+    /**
+     * How long a decoded access token is kept in the cache at most, even if it expires later. Defaults to the
+     * maximum access token validity of a Cognito app client.
+     */
+    private final Duration jwtCacheTtl;
+
     public CognitoProperties(
             String region,
             String userPoolId,
             @DefaultValue("https://cognito-idp.{region}.amazonaws.com/{userPoolId}") String issuer,
             String clientId,
             @DefaultValue("") String clientSecret,
-            String domain) {
+            String domain,
+            @DefaultValue("false") boolean jwtCacheEnabled,
+            @DefaultValue("10000") long jwtCacheMaxSize,
+            @DefaultValue("15m") Duration jwksRefreshInterval,
+            @DefaultValue("24h") Duration jwksMaxStaleness,
+            @DefaultValue("true") boolean jwksDiscoveryEnabled,
+            @DefaultValue("false") boolean metadataSnapshotEnabled,
+            @DefaultValue("7d") Duration metadataSnapshotMaxAge,
+            @DefaultValue("false") boolean jwtPrecheckEnabled,
+            @DefaultValue("8192") int jwtMaxLength,
+            @Nullable List<String> jwtClientIds,
+            @DefaultValue("false") boolean jwtNegativeCacheEnabled,
+            @DefaultValue("1m") Duration jwtNegativeCacheTtl,
+            @DefaultValue("10000") long jwtNegativeCacheMaxSize,
+            @Nullable List<String> additionalUserPoolIds,
+            @DefaultValue("1000") long groupsCacheMaxSize,
+            @DefaultValue("5m") Duration groupsCacheTtl,
+            @DefaultValue("1000") long groupSetsCacheMaxSize,
+            @Nullable Map<String, List<String>> groupMappings,
+            @Nullable Map<String, String> groupAliases,
+            @DefaultValue("true") boolean groupPrefixConventionEnabled,
+            @DefaultValue("false") boolean metricsEnabled,
+            @DefaultValue("true") boolean metricsHistogramsEnabled,
+            @Nullable List<String> jwtRetainedClaims,
+            @DefaultValue("false") boolean idTokenUserEnabled,
+            @Nullable List<String> userInfoAttributes,
+            @DefaultValue("5s") Duration httpConnectTimeout,
+            @DefaultValue("10s") Duration httpReadTimeout,
+            @DefaultValue("50") int httpMaxConnections,
+            @DefaultValue("20") int httpMaxConnectionsPerRoute,
+            @DefaultValue("5m") Duration httpConnectionTtl,
+            @DefaultValue("false") boolean compactPrincipalEnabled,
+            @DefaultValue({"sub", "email", "cognito:username"}) List<String> compactPrincipalAttributes,
+            @DefaultValue("false") boolean authorizedClientStoreEnabled,
+            @DefaultValue("12h") Duration authorizedClientsTtl,
+            @DefaultValue("10000") long authorizedClientsMaxSize,
+            @DefaultValue("false") boolean tokenRenewalEnabled,
+            @DefaultValue("2m") Duration tokenRenewalWindow,
+            @DefaultValue("30s") Duration tokenRenewalInterval,
+            @DefaultValue("false") boolean statelessEnabled,
+            @DefaultValue("") String statelessCookieSecret,
+            @DefaultValue("8h") Duration statelessCookieTtl,
+            @DefaultValue("3") int discoveryMaxAttempts,
+            @DefaultValue("500ms") Duration discoveryRetryBackoff,
+            @DefaultValue("false") boolean tokenRevocationEnabled,
+            @DefaultValue("3") int tokenRevocationMaxAttempts,
+            @DefaultValue("10000") int tokenRevocationQueueCapacity,
+            @DefaultValue("false") boolean jwtRevocationEnabled,
+            @DefaultValue("24h") Duration jwtRevocationRetention,
+            @DefaultValue("10000") long jwtRevocationExpectedInsertions,
+            @DefaultValue("24h") Duration jwtCacheTtl) {
         this.region = region;
         this.userPoolId = userPoolId;
-        UriComponents uriComponents = UriComponentsBuilder.fromUriString(issuer).build();
-        Map<String, String> issuerPathReplacements = new HashMap<>();
-        issuerPathReplacements.put("region", region);
-        issuerPathReplacements.put("userPoolId", userPoolId);
-        uriComponents = uriComponents.expand(issuerPathReplacements);
-        this.issuerUri = uriComponents.toUriString();
+        this.issuerUri = expandIssuer(issuer, region, userPoolId);
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.domain = domain;
+        this.jwtCacheEnabled = jwtCacheEnabled;
+        this.jwtCacheMaxSize = jwtCacheMaxSize;
+        this.jwksRefreshInterval = jwksRefreshInterval;
+        this.jwksMaxStaleness = jwksMaxStaleness;
+        this.jwksDiscoveryEnabled = jwksDiscoveryEnabled;
+        this.metadataSnapshotEnabled = metadataSnapshotEnabled;
+        this.metadataSnapshotMaxAge = metadataSnapshotMaxAge;
+        this.jwtPrecheckEnabled = jwtPrecheckEnabled;
+        this.jwtMaxLength = jwtMaxLength;
+        this.jwtClientIds = jwtClientIds != null ? jwtClientIds : Collections.emptyList();
+        this.jwtNegativeCacheEnabled = jwtNegativeCacheEnabled;
+        this.jwtNegativeCacheTtl = jwtNegativeCacheTtl;
+        this.jwtNegativeCacheMaxSize = jwtNegativeCacheMaxSize;
+        this.additionalUserPoolIds = additionalUserPoolIds != null ? additionalUserPoolIds : Collections.emptyList();
+        List<String> issuerUris = new ArrayList<>();
+        issuerUris.add(this.issuerUri);
+        for (String additionalUserPoolId : this.additionalUserPoolIds) {
+            issuerUris.add(expandIssuer(issuer, region, additionalUserPoolId));
+        }
+        this.issuerUris = Collections.unmodifiableList(issuerUris);
+        this.groupsCacheMaxSize = groupsCacheMaxSize;
+        this.groupsCacheTtl = groupsCacheTtl;
+        this.groupSetsCacheMaxSize = groupSetsCacheMaxSize;
+        this.groupMappings = groupMappings != null ? groupMappings : Collections.emptyMap();
+        this.groupAliases = groupAliases != null ? groupAliases : Collections.emptyMap();
+        this.groupPrefixConventionEnabled = groupPrefixConventionEnabled;
+        this.metricsEnabled = metricsEnabled;
+        this.metricsHistogramsEnabled = metricsHistogramsEnabled;
+        this.jwtRetainedClaims = jwtRetainedClaims != null ? jwtRetainedClaims : Collections.emptyList();
+        this.idTokenUserEnabled = idTokenUserEnabled;
+        this.userInfoAttributes = userInfoAttributes != null ? userInfoAttributes : Collections.emptyList();
+        this.httpConnectTimeout = httpConnectTimeout;
+        this.httpReadTimeout = httpReadTimeout;
+        this.httpMaxConnections = httpMaxConnections;
+        this.httpMaxConnectionsPerRoute = httpMaxConnectionsPerRoute;
+        this.httpConnectionTtl = httpConnectionTtl;
+        this.compactPrincipalEnabled = compactPrincipalEnabled;
+        this.compactPrincipalAttributes = compactPrincipalAttributes;
+        this.authorizedClientStoreEnabled = authorizedClientStoreEnabled;
+        this.authorizedClientsTtl = authorizedClientsTtl;
+        this.authorizedClientsMaxSize = authorizedClientsMaxSize;
+        this.tokenRenewalEnabled = tokenRenewalEnabled;
+        this.tokenRenewalWindow = tokenRenewalWindow;
+        this.tokenRenewalInterval = tokenRenewalInterval;
+        this.statelessEnabled = statelessEnabled;
+        this.statelessCookieSecret = statelessCookieSecret;
+        this.statelessCookieTtl = statelessCookieTtl;
+        this.discoveryMaxAttempts = discoveryMaxAttempts;
+        this.discoveryRetryBackoff = discoveryRetryBackoff;
+        this.tokenRevocationEnabled = tokenRevocationEnabled;
+        this.tokenRevocationMaxAttempts = tokenRevocationMaxAttempts;
+        this.tokenRevocationQueueCapacity = tokenRevocationQueueCapacity;
+        this.jwtRevocationEnabled = jwtRevocationEnabled;
+        this.jwtRevocationRetention = jwtRevocationRetention;
+        this.jwtRevocationExpectedInsertions = jwtRevocationExpectedInsertions;
+        this.jwtCacheTtl = jwtCacheTtl;
     }
 
     /**
@@ -120,4 +502,369 @@ public class CognitoProperties {
     public String getDomain() {
         return domain;
     }
+
+    /**
+     * @see #jwtCacheEnabled
+     */
+    public boolean isJwtCacheEnabled() {
+        return jwtCacheEnabled;
+    }
+
+    /**
+     * @see #jwtCacheMaxSize
+     */
+    public long getJwtCacheMaxSize() {
+        return jwtCacheMaxSize;
+    }
+
+    /**
+     * @see #jwksRefreshInterval
+     */
+    public Duration getJwksRefreshInterval() {
+        return jwksRefreshInterval;
+    }
+
+    /**
+     * @see #jwksMaxStaleness
+     */
+    public Duration getJwksMaxStaleness() {
+        return jwksMaxStaleness;
+    }
+
+    /**
+     * @see #jwksDiscoveryEnabled
+     */
+    public boolean isJwksDiscoveryEnabled() {
+        return jwksDiscoveryEnabled;
+    }
+
+    /**
+     * @see #metadataSnapshotEnabled
+     */
+    public boolean isMetadataSnapshotEnabled() {
+        return metadataSnapshotEnabled;
+    }
+
+    /**
+     * @see #metadataSnapshotMaxAge
+     */
+    public Duration getMetadataSnapshotMaxAge() {
+        return metadataSnapshotMaxAge;
+    }
+
+    /**
+     * @see #jwtPrecheckEnabled
+     */
+    public boolean isJwtPrecheckEnabled() {
+        return jwtPrecheckEnabled;
+    }
+
+    /**
+     * @see #jwtMaxLength
+     */
+    public int getJwtMaxLength() {
+        return jwtMaxLength;
+    }
+
+    /**
+     * @see #jwtClientIds
+     */
+    public List<String> getJwtClientIds() {
+        return jwtClientIds;
+    }
+
+    /**
+     * @see #jwtNegativeCacheEnabled
+     */
+    public boolean isJwtNegativeCacheEnabled() {
+        return jwtNegativeCacheEnabled;
+    }
+
+    /**
+     * @see #jwtNegativeCacheTtl
+     */
+    public Duration getJwtNegativeCacheTtl() {
+        return jwtNegativeCacheTtl;
+    }
+
+    /**
+     * @see #jwtNegativeCacheMaxSize
+     */
+    public long getJwtNegativeCacheMaxSize() {
+        return jwtNegativeCacheMaxSize;
+    }
+
+    /**
+     * @see #additionalUserPoolIds
+     */
+    public List<String> getAdditionalUserPoolIds() {
+        return additionalUserPoolIds;
+    }
+
+    /**
+     * @see #issuerUris
+     */
+    public List<String> getIssuerUris() {
+        return issuerUris;
+    }
+
+    /**
+     * @see #groupsCacheMaxSize
+     */
+    public long getGroupsCacheMaxSize() {
+        return groupsCacheMaxSize;
+    }
+
+    /**
+     * @see #groupsCacheTtl
+     */
+    public Duration getGroupsCacheTtl() {
+        return groupsCacheTtl;
+    }
+
+    /**
+     * @see #groupSetsCacheMaxSize
+     */
+    public long getGroupSetsCacheMaxSize() {
+        return groupSetsCacheMaxSize;
+    }
+
+    /**
+     * @see #groupMappings
+     */
+    public Map<String, List<String>> getGroupMappings() {
+        return groupMappings;
+    }
+
+    /**
+     * @see #groupAliases
+     */
+    public Map<String, String> getGroupAliases() {
+        return groupAliases;
+    }
+
+    /**
+     * @see #groupPrefixConventionEnabled
+     */
+    public boolean isGroupPrefixConventionEnabled() {
+        return groupPrefixConventionEnabled;
+    }
+
+    /**
+     * @see #metricsEnabled
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @see #metricsHistogramsEnabled
+     */
+    public boolean isMetricsHistogramsEnabled() {
+        return metricsHistogramsEnabled;
+    }
+
+    /**
+     * @see #jwtRetainedClaims
+     */
+    public List<String> getJwtRetainedClaims() {
+        return jwtRetainedClaims;
+    }
+
+    /**
+     * @see #idTokenUserEnabled
+     */
+    public boolean isIdTokenUserEnabled() {
+        return idTokenUserEnabled;
+    }
+
+    /**
+     * @see #userInfoAttributes
+     */
+    public List<String> getUserInfoAttributes() {
+        return userInfoAttributes;
+    }
+
+    /**
+     * @see #httpConnectTimeout
+     */
+    public Duration getHttpConnectTimeout() {
+        return httpConnectTimeout;
+    }
+
+    /**
+     * @see #httpReadTimeout
+     */
+    public Duration getHttpReadTimeout() {
+        return httpReadTimeout;
+    }
+
+    /**
+     * @see #httpMaxConnections
+     */
+    public int getHttpMaxConnections() {
+        return httpMaxConnections;
+    }
+
+    /**
+     * @see #httpMaxConnectionsPerRoute
+     */
+    public int getHttpMaxConnectionsPerRoute() {
+        return httpMaxConnectionsPerRoute;
+    }
+
+    /**
+     * @see #httpConnectionTtl
+     */
+    public Duration getHttpConnectionTtl() {
+        return httpConnectionTtl;
+    }
+
+    /**
+     * @see #compactPrincipalEnabled
+     */
+    public boolean isCompactPrincipalEnabled() {
+        return compactPrincipalEnabled;
+    }
+
+    /**
+     * @see #compactPrincipalAttributes
+     */
+    public List<String> getCompactPrincipalAttributes() {
+        return compactPrincipalAttributes;
+    }
+
+    /**
+     * @see #authorizedClientStoreEnabled
+     */
+    public boolean isAuthorizedClientStoreEnabled() {
+        return authorizedClientStoreEnabled;
+    }
+
+    /**
+     * @see #authorizedClientsTtl
+     */
+    public Duration getAuthorizedClientsTtl() {
+        return authorizedClientsTtl;
+    }
+
+    /**
+     * @see #authorizedClientsMaxSize
+     */
+    public long getAuthorizedClientsMaxSize() {
+        return authorizedClientsMaxSize;
+    }
+
+    /**
+     * @see #tokenRenewalEnabled
+     */
+    public boolean isTokenRenewalEnabled() {
+        return tokenRenewalEnabled;
+    }
+
+    /**
+     * @see #tokenRenewalWindow
+     */
+    public Duration getTokenRenewalWindow() {
+        return tokenRenewalWindow;
+    }
+
+    /**
+     * @see #tokenRenewalInterval
+     */
+    public Duration getTokenRenewalInterval() {
+        return tokenRenewalInterval;
+    }
+
+    /**
+     * @see #statelessEnabled
+     */
+    public boolean isStatelessEnabled() {
+        return statelessEnabled;
+    }
+
+    /**
+     * @see #statelessCookieSecret
+     */
+    public String getStatelessCookieSecret() {
+        return statelessCookieSecret;
+    }
+
+    /**
+     * @see #statelessCookieTtl
+     */
+    public Duration getStatelessCookieTtl() {
+        return statelessCookieTtl;
+    }
+
+    /**
+     * @see #discoveryMaxAttempts
+     */
+    public int getDiscoveryMaxAttempts() {
+        return discoveryMaxAttempts;
+    }
+
+    /**
+     * @see #discoveryRetryBackoff
+     */
+    public Duration getDiscoveryRetryBackoff() {
+        return discoveryRetryBackoff;
+    }
+
+    /**
+     * @see #tokenRevocationEnabled
+     */
+    public boolean isTokenRevocationEnabled() {
+        return tokenRevocationEnabled;
+    }
+
+    /**
+     * @see #tokenRevocationMaxAttempts
+     */
+    public int getTokenRevocationMaxAttempts() {
+        return tokenRevocationMaxAttempts;
+    }
+
+    /**
+     * @see #tokenRevocationQueueCapacity
+     */
+    public int getTokenRevocationQueueCapacity() {
+        return tokenRevocationQueueCapacity;
+    }
+
+    /**
+     * @see #jwtRevocationEnabled
+     */
+    public boolean isJwtRevocationEnabled() {
+        return jwtRevocationEnabled;
+    }
+
+    /**
+     * @see #jwtRevocationRetention
+     */
+    public Duration getJwtRevocationRetention() {
+        return jwtRevocationRetention;
+    }
+
+    /**
+     * @see #jwtRevocationExpectedInsertions
+     */
+    public long getJwtRevocationExpectedInsertions() {
+        return jwtRevocationExpectedInsertions;
+    }
+
+    /**
+     * @see #jwtCacheTtl
+     */
+    public Duration getJwtCacheTtl() {
+        return jwtCacheTtl;
+    }
+
+    private static String expandIssuer(String issuer, String region, String userPoolId) {
+        UriComponents uriComponents = UriComponentsBuilder.fromUriString(issuer).build();
+        Map<String, String> issuerPathReplacements = new HashMap<>();
+        issuerPathReplacements.put("region", region);
+        issuerPathReplacements.put("userPoolId", userPoolId);
+        return uriComponents.expand(issuerPathReplacements).toUriString();
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity;
+
+import io.jmix.awssecurity.jwt.CognitoJwkSource;
+import io.jmix.awssecurity.jwt.CognitoJwtDecoderFactory;
+import io.jmix.awssecurity.jwt.CognitoReactiveJwtDecoder;
+import io.jmix.awssecurity.jwt.IssuerRoutingJwtDecoder;
+import io.jmix.awssecurity.jwt.TimedJwtDecoder;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import io.jmix.core.security.AuthorizedUrlsProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Security configuration for provided API endpoints in reactive web applications.
+ * Requests to the authenticated URIs should have `Authorization` header containing JWT token issued by Cognito.
+ * <p>
+ * Reactive counterpart of {@link CognitoResourceServerConfiguration}.
+ */
+public abstract class CognitoReactiveResourceServerConfiguration {
+
+    @Autowired
+    private CognitoGroupsMapper cognitoGroupsMapper;
+
+    @Autowired
+    private CognitoProperties cognitoProperties;
+
+    @Autowired
+    private CognitoJwtDecoderFactory jwtDecoderFactory;
+
+    @Autowired
+    private List<AuthorizedUrlsProvider> authorizedUrlsProviders;
+
+    @Autowired(required = false)
+    private CognitoMetrics metrics = CognitoMetrics.NOOP;
+
+    @Bean("awssec_SecurityWebFilterChain")
+    public SecurityWebFilterChain cognitoSecurityWebFilterChain(ServerHttpSecurity http) {
+        List<String> authenticatedUrlPatterns = new ArrayList<>();
+        List<String> anonymousUrlPatterns = new ArrayList<>();
+        for (AuthorizedUrlsProvider provider : authorizedUrlsProviders) {
+            authenticatedUrlPatterns.addAll(provider.getAuthenticatedUrlPatterns());
+            anonymousUrlPatterns.addAll(provider.getAnonymousUrlPatterns());
+        }
+        List<String> urlPatterns = new ArrayList<>(authenticatedUrlPatterns);
+        urlPatterns.addAll(anonymousUrlPatterns);
+
+        ServerWebExchangeMatcher securityMatcher = urlPatterns.isEmpty()
+                ? exchange -> ServerWebExchangeMatcher.MatchResult.notMatch()
+                : ServerWebExchangeMatchers.pathMatchers(urlPatterns.toArray(new String[0]));
+
+        http.securityMatcher(securityMatcher)
+                .authorizeExchange(exchanges -> {
+                    if (!anonymousUrlPatterns.isEmpty()) {
+                        exchanges.pathMatchers(anonymousUrlPatterns.toArray(new String[0])).permitAll();
+                    }
+                    exchanges.anyExchange().authenticated();
+                })
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .oauth2ResourceServer(oauth2 -> oauth2
+                        .jwt(jwt -> jwt
+                                .jwtDecoder(cognitoReactiveJwtDecoder())
+                                .jwtAuthenticationConverter(cognitoReactiveJwtAuthenticationConverter())));
+        return http.build();
+    }
+
+    @Bean("awssec_ReactiveJwtDecoder")
+    public ReactiveJwtDecoder cognitoReactiveJwtDecoder() {
+        List<String> issuerUris = cognitoProperties.getIssuerUris();
+        Map<String, CognitoJwkSource> jwkSources = new HashMap<>();
+        for (String issuerUri : issuerUris) {
+            jwkSources.put(issuerUri, jwtDecoderFactory.createJwkSource(jwtDecoderFactory.getJwkSetUri(issuerUri)));
+        }
+        JwtDecoder decoder;
+        if (issuerUris.size() == 1) {
+            decoder = jwtDecoderFactory.createJwtDecoder(issuerUris.get(0), jwkSources.get(issuerUris.get(0)));
+        } else {
+            decoder = new IssuerRoutingJwtDecoder(issuerUris,
+                    issuer -> jwtDecoderFactory.createJwtDecoder(issuer, jwkSources.get(issuer)));
+        }
+        decoder = jwtDecoderFactory.decorate(decoder, issuerUris);
+        if (metrics != CognitoMetrics.NOOP) {
+            decoder = new TimedJwtDecoder(decoder, metrics);
+        }
+        return new CognitoReactiveJwtDecoder(jwkSources, decoder);
+    }
+
+    @Bean("awssec_ReactiveJwtAuthenticationConverter")
+    public Converter<Jwt, Mono<AbstractAuthenticationToken>> cognitoReactiveJwtAuthenticationConverter() {
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(new CognitoJwtGrantedAuthoritiesConverter(cognitoGroupsMapper));
+        // groups mapping may load roles from the database, so it is moved off the event loop
+        return jwt -> Mono.fromCallable(() -> converter.convert(jwt))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity;
+
+import io.jmix.core.annotation.Internal;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Classifies failures of requests to Cognito endpoints.
+ */
+@Internal
+public final class CognitoRequestFailures {
+
+    private CognitoRequestFailures() {
+    }
+
+    /**
+     * Returns whether a request failed with the given exception should be retried: I/O errors, server errors
+     * and throttling. Other client errors, e.g. invalid request or unknown resource, are not retried.
+     */
+    public static boolean isRetryable(RuntimeException e) {
+        if (e instanceof HttpClientErrorException) {
+            return ((HttpClientErrorException) e).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+        }
+        return e instanceof RestClientException;
+    }
+}
@@ -16,6 +16,10 @@
 
 package io.jmix.awssecurity;
 
+import io.jmix.awssecurity.jwt.CognitoJwtDecoderFactory;
+import io.jmix.awssecurity.jwt.IssuerRoutingJwtDecoder;
+import io.jmix.awssecurity.jwt.TimedJwtDecoder;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
 import io.jmix.core.JmixOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -23,11 +27,9 @@ import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtDecoders;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 
-import java.util.Collections;
-import java.util.Optional;
+import java.util.List;
 
 import static io.jmix.security.SecurityConfigurers.apiSecurity;
 
@@ -45,6 +47,12 @@ public abstract class CognitoResourceServerConfiguration extends WebSecurityConf
     @Autowired
     private CognitoProperties cognitoProperties;
 
+    @Autowired
+    private CognitoJwtDecoderFactory jwtDecoderFactory;
+
+    @Autowired(required = false)
+    private CognitoMetrics metrics = CognitoMetrics.NOOP;
+
     @Override
     public void configure(HttpSecurity http) throws Exception {
         http.apply(apiSecurity()).and()
@@ -56,18 +64,25 @@ public abstract class CognitoResourceServerConfiguration extends WebSecurityConf
 
     @Bean("awssec_JwtDecoder")
     public JwtDecoder cognitoJwtDecoder() {
-        String issuerUri = cognitoProperties.getIssuerUri();
-        return JwtDecoders.fromIssuerLocation(issuerUri);
+        List<String> issuerUris = cognitoProperties.getIssuerUris();
+        JwtDecoder decoder;
+        if (issuerUris.size() == 1) {
+            decoder = jwtDecoderFactory.createJwtDecoder(issuerUris.get(0));
+        } else {
+            decoder = new IssuerRoutingJwtDecoder(issuerUris,
+                    issuer -> jwtDecoderFactory.createJwtDecoder(issuer, jwtDecoderFactory.getJwkSetUri(issuer)));
+        }
+        decoder = jwtDecoderFactory.decorate(decoder, issuerUris);
+        if (metrics != CognitoMetrics.NOOP) {
+            decoder = new TimedJwtDecoder(decoder, metrics);
+        }
+        return decoder;
     }
 
     @Bean("awssec_JwtAuthenticationConverter")
     public JwtAuthenticationConverter cognitoJwtAuthenticationConverter() {
         JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
-        converter.setJwtGrantedAuthoritiesConverter(jwt ->
-                Optional.ofNullable(jwt.getClaimAsStringList("cognito:groups"))
-                        .map(cognitoGroupsMapper::createAuthorities)
-                        .orElse(Collections.emptyList())
-        );
+        converter.setJwtGrantedAuthoritiesConverter(new CognitoJwtGrantedAuthoritiesConverter(cognitoGroupsMapper));
         return converter;
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.jmix.core.annotation.Internal;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Holds executor used for background tasks of the module like refreshing of Cognito metadata.
+ * Threads are created on first use.
+ */
+@Internal
+@Component("awssec_CognitoScheduler")
+public class CognitoScheduler implements DisposableBean {
+
+    private static final int POOL_SIZE = 2;
+
+    private volatile ScheduledExecutorService executor;
+
+    public ScheduledExecutorService getExecutor() {
+        ScheduledExecutorService executor = this.executor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = this.executor;
+                if (executor == null) {
+                    executor = Executors.newScheduledThreadPool(POOL_SIZE, new ThreadFactoryBuilder()
+                            .setNameFormat("awssec-scheduler-%d")
+                            .setDaemon(true)
+                            .build());
+                    this.executor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        ScheduledExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
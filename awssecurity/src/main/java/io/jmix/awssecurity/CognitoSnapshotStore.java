@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity;
+
+import io.jmix.core.CoreProperties;
+import io.jmix.core.annotation.Internal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+
+/**
+ * Stores the last successfully retrieved Cognito metadata (discovery document, JWK set) in the
+ * <code>awssecurity</code> subdirectory of {@link CoreProperties#getWorkDir()}.
+ * <p>
+ * Snapshots allow to start the application without requests to Cognito and to keep verifying tokens
+ * while Cognito is unavailable. Snapshots are used only if enabled by
+ * {@link CognitoProperties#isMetadataSnapshotEnabled()} and not older than
+ * {@link CognitoProperties#getMetadataSnapshotMaxAge()}.
+ */
+@Internal
+@Component("awssec_CognitoSnapshotStore")
+public class CognitoSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CognitoSnapshotStore.class);
+
+    public static final String OPENID_CONFIGURATION = "openid-configuration";
+    public static final String JWKS = "jwks";
+
+    private static final String SNAPSHOT_DIR = "awssecurity";
+
+    @Autowired
+    private CoreProperties coreProperties;
+
+    @Autowired
+    private CognitoProperties properties;
+
+    /**
+     * Loads snapshot content.
+     *
+     * @param type snapshot type, e.g. {@link #JWKS}
+     * @param uri  URI the content has been retrieved from
+     * @return snapshot content or null if there is no valid snapshot
+     */
+    @Nullable
+    public String load(String type, String uri) {
+        Snapshot snapshot = loadSnapshot(type, uri);
+        return snapshot != null ? snapshot.getContent() : null;
+    }
+
+    /**
+     * Loads snapshot content together with the time it has been saved.
+     *
+     * @param type snapshot type, e.g. {@link #JWKS}
+     * @param uri  URI the content has been retrieved from
+     * @return snapshot or null if there is no valid snapshot
+     */
+    @Nullable
+    public Snapshot loadSnapshot(String type, String uri) {
+        if (!properties.isMetadataSnapshotEnabled()) {
+            return null;
+        }
+        Path file = getSnapshotFile(type, uri);
+        try {
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            Instant savedAt = Files.getLastModifiedTime(file).toInstant();
+            if (savedAt.plus(properties.getMetadataSnapshotMaxAge()).isBefore(Instant.now())) {
+                log.debug("Snapshot {} is expired", file);
+                return null;
+            }
+            return new Snapshot(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), savedAt);
+        } catch (IOException e) {
+            log.warn("Unable to read snapshot {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Saves snapshot content.
+     *
+     * @param type    snapshot type, e.g. {@link #JWKS}
+     * @param uri     URI the content has been retrieved from
+     * @param content content to save
+     */
+    public void save(String type, String uri, String content) {
+        if (!properties.isMetadataSnapshotEnabled()) {
+            return;
+        }
+        Path file = getSnapshotFile(type, uri);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), type, ".tmp");
+            Files.write(tempFile, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Unable to save snapshot {}: {}", file, e.toString());
+        }
+    }
+
+    private Path getSnapshotFile(String type, String uri) {
+        String fileName = type + "-" + DigestUtils.md5DigestAsHex(uri.getBytes(StandardCharsets.UTF_8)) + ".json";
+        return Paths.get(coreProperties.getWorkDir(), SNAPSHOT_DIR, fileName);
+    }
+
+    /**
+     * Snapshot content and the time it has been saved.
+     */
+    public static class Snapshot {
+
+        private final String content;
+        private final Instant savedAt;
+
+        public Snapshot(String content, Instant savedAt) {
+            this.content = content;
+            this.savedAt = savedAt;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public Instant getSavedAt() {
+            return savedAt;
+        }
+    }
+}
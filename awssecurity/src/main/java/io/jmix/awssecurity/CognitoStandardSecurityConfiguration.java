@@ -16,25 +16,71 @@
 
 package io.jmix.awssecurity;
 
+import com.google.common.collect.ImmutableList;
+import io.jmix.awssecurity.client.BoundedOAuth2AuthorizedClientService;
+import io.jmix.awssecurity.client.CognitoTokenRenewer;
+import io.jmix.awssecurity.jwt.CognitoJwtDecoderFactory;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import io.jmix.awssecurity.revocation.RevokedTokenRegistry;
+import io.jmix.awssecurity.stateless.CognitoCookieCodec;
+import io.jmix.awssecurity.stateless.CookieOAuth2AuthorizationRequestRepository;
+import io.jmix.awssecurity.stateless.CookieSecurityContextRepository;
+import io.jmix.awssecurity.user.CompactOAuth2AuthenticationToken;
+import io.jmix.awssecurity.user.CompactOAuth2UserDetails;
+import io.jmix.awssecurity.user.CompactPrincipalSecurityContextRepository;
 import io.jmix.awssecurity.user.OAuth2UserDetails;
 import io.jmix.awssecurity.user.OidcUserDetails;
 import io.jmix.security.StandardSecurityConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.converter.FormHttpMessageConverter;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.endpoint.DefaultAuthorizationCodeTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.DefaultRefreshTokenTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
 import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
+import org.springframework.security.oauth2.client.web.AuthenticatedPrincipalOAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepository;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
+import org.springframework.security.oauth2.core.oidc.user.DefaultOidcUser;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.security.oauth2.core.oidc.user.OidcUserAuthority;
 import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.SavedRequestAwareAuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.savedrequest.CookieRequestCache;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Security configuration for Backoffice UI. Setups OAuth2 login configuration with Cognito as authorization server.
@@ -43,16 +89,43 @@ import java.util.List;
 @Import(CognitoClientRegistrationConfiguration.class)
 public abstract class CognitoStandardSecurityConfiguration extends StandardSecurityConfiguration {
 
+    private static final Logger log = LoggerFactory.getLogger(CognitoStandardSecurityConfiguration.class);
+
     @Autowired
     private CognitoGroupsMapper cognitoGroupsMapper;
 
     @Autowired
     private CognitoLogoutSuccessHandler cognitoLogoutSuccessHandler;
 
+    @Autowired
+    private CognitoProperties cognitoProperties;
+
+    @Autowired
+    private CognitoHttpClient cognitoHttpClient;
+
+    @Autowired
+    private CognitoJwtDecoderFactory jwtDecoderFactory;
+
+    @Autowired
+    private CognitoTokenRevoker tokenRevoker;
+
+    @Autowired
+    private RevokedTokenRegistry revokedTokenRegistry;
+
+    @Autowired(required = false)
+    private CognitoMetrics metrics = CognitoMetrics.NOOP;
+
+    private BoundedOAuth2AuthorizedClientService authorizedClientService;
+
+    private CookieSecurityContextRepository securityContextRepository;
+
     @Override
     public void configure(HttpSecurity http) throws Exception {
         super.configure(http);
         http.oauth2Login()
+                .tokenEndpoint()
+                .accessTokenResponseClient(accessTokenResponseClient())
+                .and()
                 .userInfoEndpoint()
                 .userService(oauth2UserService())
                 .oidcUserService(oidcUserService())
@@ -60,33 +133,292 @@ public abstract class CognitoStandardSecurityConfiguration extends StandardSecur
                 .and()
                 .logout()
                 .logoutSuccessHandler(cognitoLogoutSuccessHandler);
+        if (cognitoProperties.isAuthorizedClientStoreEnabled() || cognitoProperties.isStatelessEnabled()) {
+            http.oauth2Login()
+                    .authorizedClientRepository(new AuthenticatedPrincipalOAuth2AuthorizedClientRepository(
+                            getAuthorizedClientService()));
+        }
+        if (cognitoProperties.isStatelessEnabled()) {
+            configureStateless(http);
+        }
+        if (cognitoProperties.isAuthorizedClientStoreEnabled() || cognitoProperties.isStatelessEnabled()
+                || cognitoProperties.isTokenRevocationEnabled()) {
+            http.logout()
+                    .addLogoutHandler(authorizedClientLogoutHandler(http));
+        }
+        if (cognitoProperties.isJwtRevocationEnabled()) {
+            http.logout()
+                    .addLogoutHandler((request, response, authentication) -> {
+                        if (authentication != null && authentication.getPrincipal() instanceof OAuth2User) {
+                            String sub = ((OAuth2User) authentication.getPrincipal()).getAttribute("sub");
+                            if (sub != null) {
+                                revokedTokenRegistry.revokeSubject(sub);
+                            }
+                        }
+                    });
+        }
+        if (cognitoProperties.isCompactPrincipalEnabled() && !cognitoProperties.isStatelessEnabled()) {
+            http.securityContext()
+                    .securityContextRepository(new CompactPrincipalSecurityContextRepository(
+                            new HttpSessionSecurityContextRepository(), cognitoGroupsMapper));
+        }
+        if (cognitoProperties.isCompactPrincipalEnabled() || cognitoProperties.isStatelessEnabled()) {
+            http.oauth2Login()
+                    .successHandler(compactPrincipalSuccessHandler());
+        }
+    }
+
+    /**
+     * Keeps security context, OAuth2 authorization request and saved request in cookies, so that requests
+     * of a user can be handled by any node. The authentication cookie is revoked on logout through
+     * {@link RevokedTokenRegistry}, which spreads the revocation to all nodes.
+     */
+    private void configureStateless(HttpSecurity http) throws Exception {
+        CognitoCookieCodec codec = new CognitoCookieCodec(cognitoProperties.getStatelessCookieSecret());
+        securityContextRepository = new CookieSecurityContextRepository(codec,
+                cognitoProperties.getStatelessCookieTtl());
+        securityContextRepository.setRevokedTokenRegistry(revokedTokenRegistry);
+        http.securityContext()
+                .securityContextRepository(new CompactPrincipalSecurityContextRepository(
+                        securityContextRepository, cognitoGroupsMapper))
+                .and()
+                .requestCache()
+                .requestCache(new CookieRequestCache())
+                .and()
+                .oauth2Login()
+                .authorizationEndpoint()
+                .authorizationRequestRepository(new CookieOAuth2AuthorizationRequestRepository(codec))
+                .and()
+                .and()
+                .logout()
+                .addLogoutHandler(securityContextRepository);
+    }
+
+    /**
+     * Factory of ID token decoders that retrieve keys through {@link CognitoHttpClient}.
+     */
+    @Bean("awssec_IdTokenDecoderFactory")
+    public JwtDecoderFactory<ClientRegistration> cognitoIdTokenDecoderFactory() {
+        Map<String, JwtDecoder> decoders = new ConcurrentHashMap<>();
+        return clientRegistration -> decoders.computeIfAbsent(clientRegistration.getRegistrationId(),
+                registrationId -> jwtDecoderFactory.createIdTokenDecoder(clientRegistration));
+    }
+
+    /**
+     * Removes the authorized client of the logged out user, so that the in-memory store does not keep
+     * and renew it until it expires. If {@link CognitoProperties#isTokenRevocationEnabled()} is set, revocation
+     * of the refresh token is queued as well. The repository is taken from the shared objects of
+     * {@link HttpSecurity}, so that the one actually used by OAuth2 login is used.
+     */
+    private LogoutHandler authorizedClientLogoutHandler(HttpSecurity http) {
+        return (request, response, authentication) -> {
+            if (!(authentication instanceof OAuth2AuthenticationToken)) {
+                return;
+            }
+            OAuth2AuthorizedClientRepository repository = http.getSharedObject(OAuth2AuthorizedClientRepository.class);
+            if (repository == null) {
+                return;
+            }
+            String registrationId = ((OAuth2AuthenticationToken) authentication).getAuthorizedClientRegistrationId();
+            OAuth2AuthorizedClient authorizedClient =
+                    repository.loadAuthorizedClient(registrationId, authentication, request);
+            if (authorizedClient != null) {
+                if (cognitoProperties.isTokenRevocationEnabled() && authorizedClient.getRefreshToken() != null) {
+                    tokenRevoker.revoke(authorizedClient.getRefreshToken().getTokenValue());
+                }
+                repository.removeAuthorizedClient(registrationId, authentication, request, response);
+            }
+        };
+    }
+
+    /**
+     * Returns in-memory store of authorized clients used if {@link CognitoProperties#isAuthorizedClientStoreEnabled()}
+     * is set.
+     */
+    protected BoundedOAuth2AuthorizedClientService getAuthorizedClientService() {
+        if (authorizedClientService == null) {
+            authorizedClientService = new BoundedOAuth2AuthorizedClientService(
+                    cognitoProperties.getAuthorizedClientsTtl(), cognitoProperties.getAuthorizedClientsMaxSize());
+        }
+        return authorizedClientService;
+    }
+
+    /**
+     * Renews access tokens of clients kept in {@link #getAuthorizedClientService()}. Started with the application
+     * context if {@link CognitoProperties#isTokenRenewalEnabled()} is set and the store is used by the login,
+     * stopped when the context is closed.
+     */
+    @Bean("awssec_TokenRenewer")
+    public CognitoTokenRenewer cognitoTokenRenewer() {
+        CognitoTokenRenewer renewer = new CognitoTokenRenewer(getAuthorizedClientService(),
+                refreshTokenResponseClient(), cognitoProperties.getTokenRenewalWindow(),
+                cognitoProperties.getTokenRenewalInterval());
+        boolean storeUsed = cognitoProperties.isAuthorizedClientStoreEnabled()
+                || cognitoProperties.isStatelessEnabled();
+        if (cognitoProperties.isTokenRenewalEnabled() && !storeUsed) {
+            log.warn("Token renewal is not started: it requires jmix.awssecurity.authorized-client-store-enabled "
+                    + "or jmix.awssecurity.stateless-enabled");
+        }
+        renewer.setAutoStartup(cognitoProperties.isTokenRenewalEnabled() && storeUsed);
+        return renewer;
+    }
+
+    /**
+     * Replaces authentication created on login with {@link CompactOAuth2AuthenticationToken},
+     * so that the security context stored in the session does not contain tokens and role objects.
+     * In stateless mode the authentication is written to the cookie before redirect.
+     */
+    private AuthenticationSuccessHandler compactPrincipalSuccessHandler() {
+        SavedRequestAwareAuthenticationSuccessHandler delegate = new SavedRequestAwareAuthenticationSuccessHandler();
+        if (cognitoProperties.isStatelessEnabled()) {
+            delegate.setRequestCache(new CookieRequestCache());
+        }
+        return (request, response, authentication) -> {
+            if (authentication instanceof OAuth2AuthenticationToken) {
+                OAuth2AuthenticationToken token = (OAuth2AuthenticationToken) authentication;
+                CompactOAuth2UserDetails principal = CompactOAuth2UserDetails.of(token.getPrincipal(),
+                        cognitoProperties.getCompactPrincipalAttributes(),
+                        CognitoJwtGrantedAuthoritiesConverter.GROUPS_CLAIM);
+                principal.resolveAuthorities(cognitoGroupsMapper::createAuthorities);
+                CompactOAuth2AuthenticationToken compactToken = new CompactOAuth2AuthenticationToken(principal,
+                        token.getAuthorizedClientRegistrationId());
+                compactToken.setDetails(token.getDetails());
+                SecurityContextHolder.getContext().setAuthentication(compactToken);
+                authentication = compactToken;
+                if (securityContextRepository != null) {
+                    securityContextRepository.saveContext(SecurityContextHolder.getContext(), request, response);
+                }
+            }
+            delegate.onAuthenticationSuccess(request, response, authentication);
+        };
+    }
+
+    private OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> accessTokenResponseClient() {
+        RestTemplate restTemplate = cognitoHttpClient.createRestTemplate();
+        restTemplate.setMessageConverters(Arrays.asList(
+                new FormHttpMessageConverter(), new OAuth2AccessTokenResponseHttpMessageConverter()));
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+        DefaultAuthorizationCodeTokenResponseClient delegate = new DefaultAuthorizationCodeTokenResponseClient();
+        delegate.setRestOperations(restTemplate);
+        return grantRequest -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                OAuth2AccessTokenResponse response = delegate.getTokenResponse(grantRequest);
+                success = true;
+                return response;
+            } finally {
+                metrics.recordTime(CognitoMetrics.TOKEN_EXCHANGE, System.nanoTime() - start, success);
+            }
+        };
+    }
+
+    private OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> refreshTokenResponseClient() {
+        RestTemplate restTemplate = cognitoHttpClient.createRestTemplate();
+        restTemplate.setMessageConverters(Arrays.asList(
+                new FormHttpMessageConverter(), new OAuth2AccessTokenResponseHttpMessageConverter()));
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+        DefaultRefreshTokenTokenResponseClient delegate = new DefaultRefreshTokenTokenResponseClient();
+        delegate.setRestOperations(restTemplate);
+        return grantRequest -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                OAuth2AccessTokenResponse response = delegate.getTokenResponse(grantRequest);
+                success = true;
+                return response;
+            } finally {
+                metrics.recordTime(CognitoMetrics.TOKEN_REFRESH, System.nanoTime() - start, success);
+            }
+        };
     }
 
     private OAuth2UserService<OAuth2UserRequest, OAuth2User> oauth2UserService() {
-        DefaultOAuth2UserService delegate = new DefaultOAuth2UserService();
+        DefaultOAuth2UserService delegate = createDefaultOAuth2UserService();
         return userRequest -> {
-            OAuth2User user = delegate.loadUser(userRequest);
+            OAuth2User user = loadUser(delegate, userRequest);
             return new OAuth2UserDetails<>(user, getUserAuthorities(user));
         };
     }
 
     private OAuth2UserService<OidcUserRequest, OidcUser> oidcUserService() {
         OidcUserService delegate = new OidcUserService();
+        delegate.setOauth2UserService(createDefaultOAuth2UserService());
         return userRequest -> {
-            OidcUser user = delegate.loadUser(userRequest);
+            OidcUser user = isUserInfoRequired(userRequest)
+                    ? loadUser(delegate, userRequest)
+                    : createIdTokenUser(userRequest);
             return new OidcUserDetails(user, getUserAuthorities(user));
         };
     }
 
+    private DefaultOAuth2UserService createDefaultOAuth2UserService() {
+        RestTemplate restTemplate = cognitoHttpClient.createRestTemplate();
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+        DefaultOAuth2UserService userService = new DefaultOAuth2UserService();
+        userService.setRestOperations(restTemplate);
+        return userService;
+    }
+
+    private boolean isUserInfoRequired(OidcUserRequest userRequest) {
+        if (!cognitoProperties.isIdTokenUserEnabled()) {
+            return true;
+        }
+        Map<String, Object> claims = userRequest.getIdToken().getClaims();
+        for (String attribute : cognitoProperties.getUserInfoAttributes()) {
+            if (!claims.containsKey(attribute)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates user from ID token claims in the same way as {@link OidcUserService} does
+     * when it does not request userinfo endpoint.
+     */
+    private OidcUser createIdTokenUser(OidcUserRequest userRequest) {
+        Set<GrantedAuthority> authorities = new LinkedHashSet<>();
+        authorities.add(new OidcUserAuthority(userRequest.getIdToken()));
+        for (String scope : userRequest.getAccessToken().getScopes()) {
+            authorities.add(new SimpleGrantedAuthority("SCOPE_" + scope));
+        }
+        String userNameAttributeName = userRequest.getClientRegistration().getProviderDetails()
+                .getUserInfoEndpoint().getUserNameAttributeName();
+        if (StringUtils.hasText(userNameAttributeName)
+                && userRequest.getIdToken().getClaims().containsKey(userNameAttributeName)) {
+            return new DefaultOidcUser(authorities, userRequest.getIdToken(), userNameAttributeName);
+        }
+        return new DefaultOidcUser(authorities, userRequest.getIdToken());
+    }
+
+    private <R extends OAuth2UserRequest, U extends OAuth2User> U loadUser(OAuth2UserService<R, U> delegate,
+                                                                          R userRequest) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            U user = delegate.loadUser(userRequest);
+            success = true;
+            return user;
+        } finally {
+            metrics.recordTime(CognitoMetrics.USERINFO, System.nanoTime() - start, success);
+        }
+    }
+
     private Collection<? extends GrantedAuthority> getUserAuthorities(OAuth2User user) throws OAuth2AuthenticationException {
         List<String> groups = user.getAttribute("cognito:groups");
-        if (groups != null && !groups.isEmpty()) {
-            List<GrantedAuthority> authorities = new ArrayList<>();
-            authorities.addAll(user.getAuthorities());
-            authorities.addAll(cognitoGroupsMapper.createAuthorities(groups));
-            return authorities;
-        } else {
+        if (groups == null || groups.isEmpty()) {
             return user.getAuthorities();
         }
+        List<GrantedAuthority> groupAuthorities = cognitoGroupsMapper.createAuthorities(groups);
+        if (user.getAuthorities().isEmpty()) {
+            // shared by all users with the same groups
+            return groupAuthorities;
+        }
+        return ImmutableList.<GrantedAuthority>builderWithExpectedSize(
+                        user.getAuthorities().size() + groupAuthorities.size())
+                .addAll(user.getAuthorities())
+                .addAll(groupAuthorities)
+                .build();
     }
 }
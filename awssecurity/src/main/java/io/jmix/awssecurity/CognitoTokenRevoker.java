@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import io.jmix.core.annotation.Internal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestOperations;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Revokes refresh tokens through Cognito REVOKE endpoint in background. Tokens are queued without blocking
+ * the caller and revoked in batches on a single thread of the revoker, so that blocking requests do not delay
+ * other background tasks. Revocations failed with I/O errors, server errors or throttling are retried
+ * with exponential backoff up to {@link CognitoProperties#getTokenRevocationMaxAttempts()} times. If the queue
+ * is full, the token is not revoked.
+ *
+ * @see <a href="https://docs.aws.amazon.com/cognito/latest/developerguide/revocation-endpoint.html">REVOKE Endpoint</a>
+ */
+@Internal
+@Component("awssec_CognitoTokenRevoker")
+public class CognitoTokenRevoker implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CognitoTokenRevoker.class);
+
+    private static final String REVOKE_ENDPOINT = "/oauth2/revoke";
+
+    private static final long BATCH_DELAY_MS = 100;
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    @Autowired
+    protected CognitoProperties properties;
+
+    @Autowired
+    protected CognitoHttpClient httpClient;
+
+    @Autowired(required = false)
+    protected CognitoMetrics metrics = CognitoMetrics.NOOP;
+
+    protected RestOperations restOperations;
+
+    private BlockingQueue<Revocation> queue;
+
+    private ScheduledExecutorService executor;
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    @PostConstruct
+    protected void init() {
+        restOperations = httpClient.createRestTemplate();
+        queue = new ArrayBlockingQueue<>(properties.getTokenRevocationQueueCapacity());
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("awssec-token-revoker-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues revocation of the given refresh token. Never blocks.
+     *
+     * @param refreshToken refresh token value
+     * @return {@code false} if the queue is full and the token will not be revoked
+     */
+    public boolean revoke(String refreshToken) {
+        return enqueue(new Revocation(refreshToken, 1));
+    }
+
+    private boolean enqueue(Revocation revocation) {
+        if (!queue.offer(revocation)) {
+            log.warn("Token revocation queue is full, refresh token is not revoked");
+            return false;
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::drain, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drain() {
+        List<Revocation> batch = new ArrayList<>();
+        try {
+            queue.drainTo(batch);
+            for (Revocation revocation : batch) {
+                revoke(revocation);
+            }
+        } finally {
+            drainScheduled.set(false);
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void revoke(Revocation revocation) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            restOperations.exchange(createRequest(revocation.token), Void.class);
+            success = true;
+        } catch (RuntimeException e) {
+            if (!CognitoRequestFailures.isRetryable(e)) {
+                log.warn("Unable to revoke refresh token: {}", e.toString());
+                return;
+            }
+            if (revocation.attempt >= properties.getTokenRevocationMaxAttempts()) {
+                log.warn("Unable to revoke refresh token after {} attempts: {}", revocation.attempt, e.toString());
+                return;
+            }
+            log.debug("Unable to revoke refresh token, attempt {}: {}", revocation.attempt, e.toString());
+            long backoff = RETRY_BACKOFF_MS << (revocation.attempt - 1);
+            Revocation retry = new Revocation(revocation.token, revocation.attempt + 1);
+            executor.schedule(() -> enqueue(retry), backoff, TimeUnit.MILLISECONDS);
+        } finally {
+            metrics.recordTime(CognitoMetrics.TOKEN_REVOCATION, System.nanoTime() - start, success);
+        }
+    }
+
+    protected RequestEntity<MultiValueMap<String, String>> createRequest(String refreshToken) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("token", refreshToken);
+        RequestEntity.BodyBuilder builder = RequestEntity
+                .post(URI.create(properties.getDomain() + REVOKE_ENDPOINT))
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED);
+        if (StringUtils.hasText(properties.getClientSecret())) {
+            builder.headers(headers -> headers.setBasicAuth(
+                    HttpHeaders.encodeBasicAuth(properties.getClientId(), properties.getClientSecret(), null)));
+        } else {
+            form.add("client_id", properties.getClientId());
+        }
+        return builder.body(form);
+    }
+
+    private static class Revocation {
+
+        private final String token;
+        private final int attempt;
+
+        private Revocation(String token, int attempt) {
+            this.token = token;
+            this.attempt = attempt;
+        }
+    }
+}
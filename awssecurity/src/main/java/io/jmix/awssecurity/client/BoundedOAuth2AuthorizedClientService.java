@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.client;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientId;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link OAuth2AuthorizedClientService} that keeps authorized clients in memory, keyed by client registration id
+ * and principal name. The number of stored clients is bounded and clients not accessed during the given time
+ * are evicted. Updates made by {@link #updateAuthorizedClients(UnaryOperator)} are not considered as access.
+ */
+public class BoundedOAuth2AuthorizedClientService implements OAuth2AuthorizedClientService {
+
+    private final Cache<OAuth2AuthorizedClientId, AtomicReference<OAuth2AuthorizedClient>> authorizedClients;
+
+    /**
+     * @param timeToIdle  how long a client is kept after the last access
+     * @param maximumSize maximum number of stored clients
+     */
+    public BoundedOAuth2AuthorizedClientService(Duration timeToIdle, long maximumSize) {
+        this.authorizedClients = CacheBuilder.newBuilder()
+                .expireAfterAccess(timeToIdle.toMillis(), TimeUnit.MILLISECONDS)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    @Override
+    public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId,
+                                                                     String principalName) {
+        AtomicReference<OAuth2AuthorizedClient> ref =
+                authorizedClients.getIfPresent(new OAuth2AuthorizedClientId(clientRegistrationId, principalName));
+        return ref != null ? (T) ref.get() : null;
+    }
+
+    @Override
+    public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+        OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(
+                authorizedClient.getClientRegistration().getRegistrationId(), principal.getName());
+        authorizedClients.put(id, new AtomicReference<>(authorizedClient));
+    }
+
+    @Override
+    public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
+        authorizedClients.invalidate(new OAuth2AuthorizedClientId(clientRegistrationId, principalName));
+    }
+
+    /**
+     * Returns snapshot of stored clients.
+     */
+    public Collection<OAuth2AuthorizedClient> getAuthorizedClients() {
+        Collection<OAuth2AuthorizedClient> result = new ArrayList<>();
+        for (AtomicReference<OAuth2AuthorizedClient> ref : authorizedClients.asMap().values()) {
+            result.add(ref.get());
+        }
+        return result;
+    }
+
+    /**
+     * Applies the given function to each stored client without resetting its idle time.
+     * The client is replaced with the result of the function or removed if the function returns {@code null}.
+     * A client saved concurrently by the application is not overwritten.
+     */
+    public void updateAuthorizedClients(UnaryOperator<OAuth2AuthorizedClient> updater) {
+        for (Map.Entry<OAuth2AuthorizedClientId, AtomicReference<OAuth2AuthorizedClient>> entry
+                : authorizedClients.asMap().entrySet()) {
+            AtomicReference<OAuth2AuthorizedClient> ref = entry.getValue();
+            OAuth2AuthorizedClient current = ref.get();
+            OAuth2AuthorizedClient updated = updater.apply(current);
+            if (updated == null) {
+                if (ref.get() == current) {
+                    authorizedClients.asMap().remove(entry.getKey(), ref);
+                }
+            } else if (updated != current) {
+                ref.compareAndSet(current, updated);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of stored clients.
+     */
+    public long size() {
+        return authorizedClients.size();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+
+import javax.annotation.Nullable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renews access tokens stored in {@link BoundedOAuth2AuthorizedClientService} using refresh tokens shortly before
+ * the access tokens expire. Each run handles all clients that expire within the renewal window, so clients of
+ * sessions that expire close together are renewed in one batch.
+ * <p>
+ * When started as a bean, renewal runs with the given interval on its own single-thread executor, so that blocking
+ * requests to Cognito neither delay other background tasks nor overlap each other. The executor is shut down when
+ * the application context is closed.
+ */
+public class CognitoTokenRenewer implements Runnable, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CognitoTokenRenewer.class);
+
+    private final BoundedOAuth2AuthorizedClientService authorizedClientService;
+    private final OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> tokenResponseClient;
+    private final Duration renewalWindow;
+    private final Duration renewalInterval;
+
+    private Clock clock = Clock.systemUTC();
+
+    private boolean autoStartup = true;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param authorizedClientService store of clients to renew
+     * @param tokenResponseClient     client of Cognito token endpoint
+     * @param renewalWindow           how long before expiry an access token is renewed
+     * @param renewalInterval         delay between renewal runs
+     */
+    public CognitoTokenRenewer(BoundedOAuth2AuthorizedClientService authorizedClientService,
+                               OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> tokenResponseClient,
+                               Duration renewalWindow,
+                               Duration renewalInterval) {
+        this.authorizedClientService = authorizedClientService;
+        this.tokenResponseClient = tokenResponseClient;
+        this.renewalWindow = renewalWindow;
+        this.renewalInterval = renewalInterval;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets whether renewal is started automatically when the application context is refreshed.
+     */
+    public void setAutoStartup(boolean autoStartup) {
+        this.autoStartup = autoStartup;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("awssec-token-renewer-%d")
+                    .setDaemon(true)
+                    .build());
+            long interval = renewalInterval.toMillis();
+            executor.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    @Override
+    public void run() {
+        Instant threshold = clock.instant().plus(renewalWindow);
+        authorizedClientService.updateAuthorizedClients(client -> renewIfExpiring(client, threshold));
+    }
+
+    @Nullable
+    protected OAuth2AuthorizedClient renewIfExpiring(OAuth2AuthorizedClient client, Instant threshold) {
+        OAuth2AccessToken accessToken = client.getAccessToken();
+        OAuth2RefreshToken refreshToken = client.getRefreshToken();
+        if (refreshToken == null
+                || accessToken.getExpiresAt() == null
+                || accessToken.getExpiresAt().isAfter(threshold)) {
+            return client;
+        }
+        try {
+            OAuth2AccessTokenResponse response = tokenResponseClient.getTokenResponse(
+                    new OAuth2RefreshTokenGrantRequest(client.getClientRegistration(), accessToken, refreshToken));
+            OAuth2RefreshToken renewedRefreshToken = response.getRefreshToken() != null
+                    ? response.getRefreshToken()
+                    : refreshToken;
+            return new OAuth2AuthorizedClient(client.getClientRegistration(), client.getPrincipalName(),
+                    response.getAccessToken(), renewedRefreshToken);
+        } catch (OAuth2AuthorizationException e) {
+            if (OAuth2ErrorCodes.INVALID_GRANT.equals(e.getError().getErrorCode())) {
+                log.debug("Refresh token of '{}' is no longer valid, removing authorized client",
+                        client.getPrincipalName());
+                return null;
+            }
+            log.warn("Unable to renew access token of '{}': {}", client.getPrincipalName(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Unable to renew access token of '{}'", client.getPrincipalName(), e);
+        }
+        return client;
+    }
+}
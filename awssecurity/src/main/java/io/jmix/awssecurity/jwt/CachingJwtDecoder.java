@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwtDecoder} that caches successfully decoded tokens until they expire, but not longer than the given
+ * time to live.
+ * <p>
+ * Tokens are keyed by SHA-256 hash of the raw token value. Concurrent requests carrying the same
+ * token that is not cached yet share single verification performed by the delegate decoder.
+ * Tokens that failed verification are not cached.
+ * <p>
+ * Cached tokens are not verified again, so a token signed by a key that has since been removed from the JWK set
+ * is accepted until {@link #invalidateAll()} is called. {@link CognitoJwtDecoderFactory} does this when
+ * a {@link CognitoJwkSource} drops keys.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * @param delegate    decoder that verifies tokens
+     * @param timeToLive  how long a token is cached at most
+     * @param maximumSize maximum number of cached tokens
+     */
+    public CachingJwtDecoder(JwtDecoder delegate, Duration timeToLive, long maximumSize) {
+        this.delegate = delegate;
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = Tokens.hash(token);
+        Jwt jwt;
+        try {
+            jwt = cache.get(key, () -> delegate.decode(token));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            cache.invalidate(key);
+        } else if (!clock.instant().isBefore(expiresAt)) {
+            cache.invalidate(key);
+            // let the delegate report expiration in the usual way
+            return delegate.decode(token);
+        }
+        return jwt;
+    }
+
+    /**
+     * Returns statistics of the cache.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Discards all cached tokens.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new JwtException("An error occurred while attempting to decode the Jwt: " + cause.getMessage(), cause);
+    }
+}
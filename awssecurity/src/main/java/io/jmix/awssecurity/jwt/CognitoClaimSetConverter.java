@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import io.jmix.awssecurity.CognitoJwtGrantedAuthoritiesConverter;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts claims of Cognito access tokens for {@link org.springframework.security.oauth2.jwt.Jwt}.
+ * <p>
+ * Unlike the default Spring Security converter, only claims used by validators and authentication
+ * converter are converted, other claims are passed as is. Group names of the
+ * {@value CognitoJwtGrantedAuthoritiesConverter#GROUPS_CLAIM} claim are interned and equal group lists
+ * of different tokens share one immutable list instance.
+ * <p>
+ * If the set of retained claims is not empty, other claims except the required ones are dropped,
+ * which reduces memory taken by cached tokens.
+ */
+public class CognitoClaimSetConverter implements Converter<Map<String, Object>, Map<String, Object>> {
+
+    private static final Set<String> REQUIRED_CLAIMS = new HashSet<>(Arrays.asList(
+            JwtClaimNames.ISS, JwtClaimNames.SUB, JwtClaimNames.AUD, JwtClaimNames.EXP, JwtClaimNames.IAT,
+            JwtClaimNames.NBF, JwtClaimNames.JTI, CognitoJwtGrantedAuthoritiesConverter.GROUPS_CLAIM,
+            "username", "client_id", "token_use", "scope"));
+
+    private final Set<String> retainedClaims;
+
+    private final Interner<String> groupNames = Interners.newWeakInterner();
+    private final Interner<List<String>> groupLists = Interners.newWeakInterner();
+
+    public CognitoClaimSetConverter() {
+        this(Collections.emptySet());
+    }
+
+    /**
+     * @param retainedClaims claims kept in addition to the required ones, empty collection to keep all claims
+     */
+    public CognitoClaimSetConverter(Collection<String> retainedClaims) {
+        if (retainedClaims.isEmpty()) {
+            this.retainedClaims = Collections.emptySet();
+        } else {
+            this.retainedClaims = new HashSet<>(REQUIRED_CLAIMS);
+            this.retainedClaims.addAll(retainedClaims);
+        }
+    }
+
+    @Override
+    public Map<String, Object> convert(Map<String, Object> claims) {
+        Map<String, Object> converted = new HashMap<>((int) (claims.size() / 0.75f) + 1);
+        for (Map.Entry<String, Object> entry : claims.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            if (value == null || (!retainedClaims.isEmpty() && !retainedClaims.contains(name))) {
+                continue;
+            }
+            switch (name) {
+                case JwtClaimNames.EXP:
+                case JwtClaimNames.IAT:
+                case JwtClaimNames.NBF:
+                    converted.put(name, toInstant(value));
+                    break;
+                case JwtClaimNames.ISS:
+                case JwtClaimNames.SUB:
+                    converted.put(name, value.toString());
+                    break;
+                case JwtClaimNames.AUD:
+                    converted.put(name, toStringList(value));
+                    break;
+                case CognitoJwtGrantedAuthoritiesConverter.GROUPS_CLAIM:
+                    converted.put(name, toGroupList(value));
+                    break;
+                default:
+                    converted.put(name, value);
+            }
+        }
+        return converted;
+    }
+
+    private Object toInstant(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).toInstant();
+        }
+        if (value instanceof Number) {
+            return Instant.ofEpochSecond(((Number) value).longValue());
+        }
+        return value;
+    }
+
+    private List<String> toStringList(Object value) {
+        if (value instanceof Collection) {
+            ImmutableList.Builder<String> builder = ImmutableList.builder();
+            for (Object item : (Collection<?>) value) {
+                builder.add(item.toString());
+            }
+            return builder.build();
+        }
+        return Collections.singletonList(value.toString());
+    }
+
+    private List<String> toGroupList(Object value) {
+        if (!(value instanceof Collection)) {
+            return Collections.singletonList(groupNames.intern(value.toString()));
+        }
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        for (Object group : (Collection<?>) value) {
+            builder.add(groupNames.intern(group.toString()));
+        }
+        return groupLists.intern(builder.build());
+    }
+}
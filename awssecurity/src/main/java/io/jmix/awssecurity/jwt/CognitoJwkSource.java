@@ -0,0 +1,343 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.jmix.awssecurity.CognitoSnapshotStore;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.web.client.RestOperations;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link JWKSource} that keeps Cognito JWK set warm by refreshing it in background.
+ * <ul>
+ *     <li>The JWK set is loaded on first use and then refreshed with the configured interval.</li>
+ *     <li>Request threads are served from the cached set while it is being revalidated. If the JWK set
+ *     cannot be retrieved, cached keys are served until they become older than the maximum staleness.</li>
+ *     <li>Every successfully retrieved JWK set replaces the cached one, so keys removed by Cognito
+ *     are rejected right away.</li>
+ *     <li>Token with unknown key id triggers a refresh, concurrent refreshes are coalesced into single
+ *     HTTP request. Refreshes started by requests, either for unknown key or for revalidation of a late
+ *     JWK set, are rate limited, so a failing endpoint is not requested at the request rate.</li>
+ *     <li>If {@link CognitoSnapshotStore} is set, the JWK set is initially loaded from the snapshot and
+ *     revalidated in background. The snapshot is as old as the time it has been saved, so it is used only
+ *     within the maximum staleness. Every retrieved JWK set is saved to the snapshot.</li>
+ * </ul>
+ */
+public class CognitoJwkSource implements JWKSource<SecurityContext> {
+
+    private static final Logger log = LoggerFactory.getLogger(CognitoJwkSource.class);
+
+    /**
+     * Minimum interval between refreshes started by requests rather than by the schedule: revalidation of
+     * a JWK set older than the refresh interval and refresh for an unknown key id.
+     */
+    private static final Duration ON_DEMAND_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    private static final MediaType APPLICATION_JWK_SET_JSON = MediaType.valueOf("application/jwk-set+json");
+
+    private final URI jwkSetUri;
+    private final RestOperations restOperations;
+    private final ScheduledExecutorService executor;
+    private final Duration refreshInterval;
+    private final Duration maxStaleness;
+
+    private final AtomicReference<CompletableFuture<JWKSet>> pendingRefresh = new AtomicReference<>();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    private volatile CachedJwkSet cached;
+    private volatile Instant lastRefreshAttempt = Instant.EPOCH;
+
+    private Clock clock = Clock.systemUTC();
+
+    private CognitoSnapshotStore snapshotStore;
+    private CognitoMetrics metrics = CognitoMetrics.NOOP;
+    private Runnable keysRemovedListener;
+    private boolean snapshotLoaded;
+
+    public CognitoJwkSource(String jwkSetUri,
+                            RestOperations restOperations,
+                            ScheduledExecutorService executor,
+                            Duration refreshInterval,
+                            Duration maxStaleness) {
+        this.jwkSetUri = URI.create(jwkSetUri);
+        this.restOperations = restOperations;
+        this.executor = executor;
+        this.refreshInterval = refreshInterval;
+        this.maxStaleness = maxStaleness;
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, @Nullable SecurityContext context) throws KeySourceException {
+        List<JWK> keys = jwkSelector.select(getJwkSet());
+        if (keys.isEmpty() && isKeyIdRequested(jwkSelector) && isUnknownKeyRefreshAllowed()) {
+            keys = jwkSelector.select(awaitRefresh());
+        }
+        return keys;
+    }
+
+    /**
+     * Selects keys from the cached JWK set without blocking.
+     *
+     * @return matching keys or null if the JWK set must be loaded first
+     */
+    @Nullable
+    public List<JWK> getCachedKeys(JWKSelector jwkSelector) {
+        CachedJwkSet current = cached;
+        if (current == null || isStale(current)) {
+            return null;
+        }
+        List<JWK> keys = jwkSelector.select(current.jwkSet);
+        if (keys.isEmpty() && isKeyIdRequested(jwkSelector) && isUnknownKeyRefreshAllowed()) {
+            return null;
+        }
+        if (current.fetchedAt.plus(refreshInterval).isBefore(clock.instant())) {
+            revalidate();
+        }
+        return keys;
+    }
+
+    /**
+     * Returns cached JWK set. Loads the set synchronously only if nothing is cached yet
+     * or cached set is older than the maximum staleness.
+     */
+    public JWKSet getJwkSet() throws KeySourceException {
+        CachedJwkSet current = cached;
+        if (current == null) {
+            current = loadSnapshot();
+        }
+        if (current == null || isStale(current)) {
+            return awaitRefresh();
+        }
+        if (current.fetchedAt.plus(refreshInterval).isBefore(clock.instant())) {
+            // scheduled refresh is late or failing, revalidate in background
+            revalidate();
+        }
+        return current.jwkSet;
+    }
+
+    /**
+     * Starts asynchronous refresh of the JWK set or joins the one that is already in progress.
+     *
+     * @return future completed with the refreshed JWK set
+     */
+    public CompletableFuture<JWKSet> refresh() {
+        while (true) {
+            CompletableFuture<JWKSet> pending = pendingRefresh.get();
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<JWKSet> future = new CompletableFuture<>();
+            if (pendingRefresh.compareAndSet(null, future)) {
+                lastRefreshAttempt = clock.instant();
+                try {
+                    executor.execute(() -> doRefresh(future));
+                } catch (RejectedExecutionException e) {
+                    pendingRefresh.compareAndSet(future, null);
+                    future.completeExceptionally(e);
+                }
+                return future;
+            }
+        }
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void setSnapshotStore(@Nullable CognitoSnapshotStore snapshotStore) {
+        this.snapshotStore = snapshotStore;
+    }
+
+    public void setMetrics(CognitoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets listener notified when a retrieved JWK set no longer contains some of the cached keys,
+     * e.g. to discard tokens verified with removed keys.
+     */
+    public void setKeysRemovedListener(@Nullable Runnable keysRemovedListener) {
+        this.keysRemovedListener = keysRemovedListener;
+    }
+
+    protected JWKSet fetchJwkSet() throws IOException, ParseException {
+        RequestEntity<Void> request = RequestEntity.get(jwkSetUri)
+                .accept(MediaType.APPLICATION_JSON, APPLICATION_JWK_SET_JSON)
+                .build();
+        String body = restOperations.exchange(request, String.class).getBody();
+        if (body == null) {
+            throw new IOException("Empty response body");
+        }
+        return JWKSet.parse(body);
+    }
+
+    private void doRefresh(CompletableFuture<JWKSet> future) {
+        try {
+            JWKSet fetched = timedFetchJwkSet();
+            CachedJwkSet updated = new CachedJwkSet(fetched, clock.instant());
+            CachedJwkSet previous = cached;
+            cached = updated;
+            if (previous != null && keysRemovedListener != null && isAnyKeyRemoved(previous.jwkSet, fetched)) {
+                keysRemovedListener.run();
+            }
+            saveSnapshot(fetched);
+            scheduleRefresh();
+            pendingRefresh.compareAndSet(future, null);
+            future.complete(updated.jwkSet);
+        } catch (Exception e) {
+            log.warn("Unable to refresh JWK set from {}: {}", jwkSetUri, e.toString());
+            pendingRefresh.compareAndSet(future, null);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private JWKSet timedFetchJwkSet() throws IOException, ParseException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            JWKSet fetched = fetchJwkSet();
+            success = true;
+            return fetched;
+        } finally {
+            metrics.recordTime(CognitoMetrics.JWKS_FETCH, System.nanoTime() - start, success);
+        }
+    }
+
+    private JWKSet awaitRefresh() throws KeySourceException {
+        try {
+            return refresh().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KeySourceException("Interrupted while retrieving JWK set from " + jwkSetUri, e);
+        } catch (ExecutionException e) {
+            CachedJwkSet current = cached;
+            if (current != null && !isStale(current)) {
+                return current.jwkSet;
+            }
+            throw new KeySourceException("Couldn't retrieve JWK set from " + jwkSetUri + ": "
+                    + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Nullable
+    private synchronized CachedJwkSet loadSnapshot() {
+        if (cached != null || snapshotStore == null || snapshotLoaded) {
+            return cached;
+        }
+        snapshotLoaded = true;
+        CognitoSnapshotStore.Snapshot snapshot = snapshotStore.loadSnapshot(CognitoSnapshotStore.JWKS,
+                jwkSetUri.toString());
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            // the snapshot is as fresh as the fetch that saved it
+            CachedJwkSet loaded = new CachedJwkSet(JWKSet.parse(snapshot.getContent()), snapshot.getSavedAt());
+            cached = loaded;
+            refresh();
+            return loaded;
+        } catch (ParseException e) {
+            log.warn("Ignoring snapshot of JWK set {}: {}", jwkSetUri, e.toString());
+            return null;
+        }
+    }
+
+    private void saveSnapshot(JWKSet jwkSet) {
+        if (snapshotStore != null) {
+            // saved on every fetch so that the snapshot time reflects the last successful retrieval
+            snapshotStore.save(CognitoSnapshotStore.JWKS, jwkSetUri.toString(), jwkSet.toString());
+        }
+    }
+
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            long interval = refreshInterval.toMillis();
+            executor.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static boolean isAnyKeyRemoved(JWKSet previous, JWKSet current) {
+        for (JWK key : previous.getKeys()) {
+            if (key.getKeyID() == null || current.getKeyByKeyId(key.getKeyID()) == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStale(CachedJwkSet jwkSet) {
+        return jwkSet.fetchedAt.plus(maxStaleness).isBefore(clock.instant());
+    }
+
+    private boolean isKeyIdRequested(JWKSelector jwkSelector) {
+        Set<String> keyIds = jwkSelector.getMatcher().getKeyIDs();
+        return keyIds != null && !keyIds.isEmpty();
+    }
+
+    private boolean isUnknownKeyRefreshAllowed() {
+        return pendingRefresh.get() != null
+                || lastRefreshAttempt.plus(ON_DEMAND_REFRESH_INTERVAL).isBefore(clock.instant());
+    }
+
+    /**
+     * Starts background refresh unless one is running or has been attempted recently, so that a failing
+     * JWK set endpoint is not requested on every token while cached keys are served.
+     */
+    private void revalidate() {
+        if (pendingRefresh.get() == null
+                && lastRefreshAttempt.plus(ON_DEMAND_REFRESH_INTERVAL).isBefore(clock.instant())) {
+            refresh();
+        }
+    }
+
+    private static class CachedJwkSet {
+
+        private final JWKSet jwkSet;
+        private final Instant fetchedAt;
+
+        CachedJwkSet(JWKSet jwkSet, Instant fetchedAt) {
+            this.jwkSet = jwkSet;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.security.Key;
+import java.security.interfaces.RSAPublicKey;
+import java.util.*;
+
+/**
+ * {@link JWSKeySelector} for RS256 signed Cognito tokens that indexes keys of {@link CognitoJwkSource} by key id.
+ * <p>
+ * Public keys and {@link RSASSAVerifier} instances are built once per JWK set and reused by all threads
+ * until the JWK set changes. Verifiers are provided to the JWT processor by {@link #getVerifierFactory()}.
+ */
+public class CognitoJwsKeySelector implements JWSKeySelector<SecurityContext> {
+
+    private static final Logger log = LoggerFactory.getLogger(CognitoJwsKeySelector.class);
+
+    private static final JWSAlgorithm ALGORITHM = JWSAlgorithm.RS256;
+
+    private final CognitoJwkSource jwkSource;
+    private final JWSVerifierFactory verifierFactory = new CachingVerifierFactory();
+
+    private volatile KeyIndex index;
+
+    public CognitoJwsKeySelector(CognitoJwkSource jwkSource) {
+        this.jwkSource = jwkSource;
+    }
+
+    @Override
+    public List<? extends Key> selectJWSKeys(JWSHeader header, @Nullable SecurityContext context)
+            throws KeySourceException {
+        if (!ALGORITHM.equals(header.getAlgorithm())) {
+            return Collections.emptyList();
+        }
+        String keyId = header.getKeyID();
+        KeyIndex current = getIndex();
+        if (keyId == null) {
+            return current.keys;
+        }
+        VerificationKey key = current.keysById.get(keyId);
+        if (key == null) {
+            // let the source refresh the JWK set if the key is unknown
+            JWKMatcher jwkMatcher = JWKMatcher.forJWSHeader(header);
+            if (jwkMatcher != null && !jwkSource.get(new JWKSelector(jwkMatcher), context).isEmpty()) {
+                key = getIndex().keysById.get(keyId);
+            }
+        }
+        if (key == null) {
+            throw new UnknownKeyIdException(keyId);
+        }
+        return Collections.singletonList(key.publicKey);
+    }
+
+    /**
+     * Returns factory that provides cached verifiers for keys selected by this selector.
+     */
+    public JWSVerifierFactory getVerifierFactory() {
+        return verifierFactory;
+    }
+
+    private KeyIndex getIndex() throws KeySourceException {
+        JWKSet jwkSet = jwkSource.getJwkSet();
+        KeyIndex current = index;
+        if (current == null || current.jwkSet != jwkSet) {
+            current = new KeyIndex(jwkSet);
+            index = current;
+        }
+        return current;
+    }
+
+    private static class VerificationKey {
+
+        private final RSAPublicKey publicKey;
+        private final JWSVerifier verifier;
+
+        VerificationKey(RSAPublicKey publicKey) {
+            this.publicKey = publicKey;
+            this.verifier = new RSASSAVerifier(publicKey);
+        }
+    }
+
+    private static class KeyIndex {
+
+        private final JWKSet jwkSet;
+        private final Map<String, VerificationKey> keysById = new HashMap<>();
+        private final Map<Key, JWSVerifier> verifiers = new IdentityHashMap<>();
+        private final List<RSAPublicKey> keys = new ArrayList<>();
+
+        KeyIndex(JWKSet jwkSet) {
+            this.jwkSet = jwkSet;
+            for (JWK jwk : jwkSet.getKeys()) {
+                if (!(jwk instanceof RSAKey)
+                        || (jwk.getKeyUse() != null && !KeyUse.SIGNATURE.equals(jwk.getKeyUse()))
+                        || (jwk.getAlgorithm() != null && !ALGORITHM.equals(jwk.getAlgorithm()))) {
+                    continue;
+                }
+                try {
+                    VerificationKey key = new VerificationKey(((RSAKey) jwk).toRSAPublicKey());
+                    if (jwk.getKeyID() != null) {
+                        keysById.put(jwk.getKeyID(), key);
+                    }
+                    verifiers.put(key.publicKey, key.verifier);
+                    keys.add(key.publicKey);
+                } catch (JOSEException e) {
+                    log.warn("Skipping invalid JWK {}: {}", jwk.getKeyID(), e.toString());
+                }
+            }
+        }
+    }
+
+    private class CachingVerifierFactory extends DefaultJWSVerifierFactory {
+
+        @Override
+        public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+            KeyIndex current = index;
+            JWSVerifier verifier = current != null ? current.verifiers.get(key) : null;
+            return verifier != null ? verifier : super.createJWSVerifier(header, key);
+        }
+    }
+}
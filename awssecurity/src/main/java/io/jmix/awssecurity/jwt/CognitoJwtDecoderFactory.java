@@ -0,0 +1,248 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.nimbusds.jwt.proc.JWTProcessor;
+import io.jmix.awssecurity.CognitoDiscoveryDocumentProvider;
+import io.jmix.awssecurity.CognitoHttpClient;
+import io.jmix.awssecurity.CognitoProperties;
+import io.jmix.awssecurity.CognitoScheduler;
+import io.jmix.awssecurity.CognitoSnapshotStore;
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import io.jmix.awssecurity.revocation.RevokedTokenRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestOperations;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Creates {@link JwtDecoder} instances that verify access tokens issued by Cognito user pool.
+ * Created decoders use {@link CognitoJwkSource} that refreshes JWK set in background
+ * and {@link CognitoJwsKeySelector} that reuses verifiers of known keys.
+ * <p>
+ * If JWK set discovery is disabled by {@link CognitoProperties#isJwksDiscoveryEnabled()}, the JWK set URI
+ * is derived from the issuer URI and the decoder is created lazily on the first request,
+ * so no requests to Cognito are made on application startup.
+ */
+@Component("awssec_CognitoJwtDecoderFactory")
+public class CognitoJwtDecoderFactory {
+
+    private static final String JWKS_PATH = "/.well-known/jwks.json";
+
+    @Autowired
+    protected CognitoProperties properties;
+
+    @Autowired
+    protected CognitoDiscoveryDocumentProvider discoveryDocumentProvider;
+
+    @Autowired
+    protected CognitoSnapshotStore snapshotStore;
+
+    @Autowired
+    protected CognitoScheduler scheduler;
+
+    @Autowired(required = false)
+    protected CognitoMetrics metrics = CognitoMetrics.NOOP;
+
+    @Autowired
+    protected CognitoHttpClient httpClient;
+
+    @Autowired
+    protected RevokedTokenRegistry revokedTokenRegistry;
+
+    protected RestOperations restOperations;
+
+    private CognitoClaimSetConverter claimSetConverter;
+
+    private final List<CachingJwtDecoder> cachingDecoders = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    protected void init() {
+        claimSetConverter = new CognitoClaimSetConverter(properties.getJwtRetainedClaims());
+        restOperations = httpClient.createRestTemplate();
+    }
+
+    /**
+     * Creates decoder for tokens issued by the given issuer.
+     *
+     * @param issuerUri Cognito user pool issuer URI
+     * @return JWT decoder
+     */
+    public JwtDecoder createJwtDecoder(String issuerUri) {
+        if (!properties.isJwksDiscoveryEnabled()) {
+            return new LazyJwtDecoder(() -> createJwtDecoder(issuerUri, deriveJwkSetUri(issuerUri)));
+        }
+        return createJwtDecoder(issuerUri, discoverJwkSetUri(issuerUri));
+    }
+
+    /**
+     * Returns JWK set URI of the given issuer, either discovered or derived from the issuer URI
+     * depending on {@link CognitoProperties#isJwksDiscoveryEnabled()}.
+     *
+     * @param issuerUri Cognito user pool issuer URI
+     * @return JWK set URI
+     */
+    public String getJwkSetUri(String issuerUri) {
+        return properties.isJwksDiscoveryEnabled() ? discoverJwkSetUri(issuerUri) : deriveJwkSetUri(issuerUri);
+    }
+
+    /**
+     * Creates decoder for tokens issued by the given issuer and signed by keys from the given JWK set.
+     *
+     * @param issuerUri Cognito user pool issuer URI
+     * @param jwkSetUri user pool JWK set URI
+     * @return JWT decoder
+     */
+    public JwtDecoder createJwtDecoder(String issuerUri, String jwkSetUri) {
+        return createJwtDecoder(issuerUri, createJwkSource(jwkSetUri));
+    }
+
+    /**
+     * Creates decoder for tokens issued by the given issuer and signed by keys of the given JWK source.
+     *
+     * @param issuerUri Cognito user pool issuer URI
+     * @param jwkSource user pool JWK source
+     * @return JWT decoder
+     */
+    public JwtDecoder createJwtDecoder(String issuerUri, CognitoJwkSource jwkSource) {
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(createJwtProcessor(jwkSource));
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        decoder.setClaimSetConverter(claimSetConverter);
+        return decoder;
+    }
+
+    /**
+     * Wraps the given decoder into decoders enabled in {@link CognitoProperties}: cache of decoded tokens,
+     * cache of rejected tokens, precheck of token claims and revocation check.
+     *
+     * @param decoder    decoder that verifies tokens
+     * @param issuerUris trusted issuers
+     * @return decorated decoder
+     */
+    public JwtDecoder decorate(JwtDecoder decoder, List<String> issuerUris) {
+        if (properties.isJwtCacheEnabled()) {
+            CachingJwtDecoder cachingDecoder = new CachingJwtDecoder(decoder, properties.getJwtCacheTtl(),
+                    properties.getJwtCacheMaxSize());
+            metrics.bindCache("jwt", cachingDecoder::getStats);
+            cachingDecoders.add(cachingDecoder);
+            decoder = cachingDecoder;
+        }
+        if (properties.isJwtNegativeCacheEnabled()) {
+            NegativeCachingJwtDecoder negativeCachingDecoder = new NegativeCachingJwtDecoder(decoder,
+                    properties.getJwtNegativeCacheTtl(), properties.getJwtNegativeCacheMaxSize());
+            metrics.bindCache("jwt-rejected", negativeCachingDecoder::getStats);
+            decoder = negativeCachingDecoder;
+        }
+        if (properties.isJwtPrecheckEnabled()) {
+            decoder = new PrecheckingJwtDecoder(decoder, issuerUris,
+                    properties.getJwtClientIds(), properties.getJwtMaxLength());
+        }
+        if (properties.isJwtRevocationEnabled()) {
+            decoder = new RevocationCheckingJwtDecoder(decoder, revokedTokenRegistry);
+        }
+        return decoder;
+    }
+
+    /**
+     * Creates decoder of OpenID Connect ID tokens issued for the given client registration.
+     *
+     * @param clientRegistration client registration
+     * @return JWT decoder
+     */
+    public JwtDecoder createIdTokenDecoder(ClientRegistration clientRegistration) {
+        String jwkSetUri = clientRegistration.getProviderDetails().getJwkSetUri();
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(createJwtProcessor(createJwkSource(jwkSetUri)));
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                new JwtTimestampValidator(), new OidcIdTokenValidator(clientRegistration)));
+        decoder.setClaimSetConverter(MappedJwtClaimSetConverter.withDefaults(
+                OidcIdTokenDecoderFactory.createDefaultClaimTypeConverters()));
+        return decoder;
+    }
+
+    /**
+     * Discards tokens cached by decoders created by {@link #decorate(JwtDecoder, List)}, so that tokens signed
+     * by removed keys are verified again.
+     */
+    protected void invalidateCachedTokens() {
+        for (CachingJwtDecoder cachingDecoder : cachingDecoders) {
+            cachingDecoder.invalidateAll();
+        }
+    }
+
+    /**
+     * Creates JWK source that loads keys from the given JWK set URI.
+     *
+     * @param jwkSetUri user pool JWK set URI
+     * @return JWK source
+     */
+    public CognitoJwkSource createJwkSource(String jwkSetUri) {
+        CognitoJwkSource jwkSource = new CognitoJwkSource(jwkSetUri, restOperations, scheduler.getExecutor(),
+                properties.getJwksRefreshInterval(), properties.getJwksMaxStaleness());
+        jwkSource.setSnapshotStore(snapshotStore);
+        jwkSource.setMetrics(metrics);
+        jwkSource.setKeysRemovedListener(this::invalidateCachedTokens);
+        return jwkSource;
+    }
+
+    /**
+     * Returns converter of token claims shared by created decoders.
+     */
+    public CognitoClaimSetConverter getClaimSetConverter() {
+        return claimSetConverter;
+    }
+
+    protected JWTProcessor<SecurityContext> createJwtProcessor(CognitoJwkSource jwkSource) {
+        CognitoJwsKeySelector keySelector = new CognitoJwsKeySelector(jwkSource);
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(keySelector);
+        jwtProcessor.setJWSVerifierFactory(keySelector.getVerifierFactory());
+        // claims are validated by Spring Security validators
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        return jwtProcessor;
+    }
+
+    protected String deriveJwkSetUri(String issuerUri) {
+        return UriComponentsBuilder.fromUriString(issuerUri)
+                .path(JWKS_PATH)
+                .build()
+                .toUriString();
+    }
+
+    protected String discoverJwkSetUri(String issuerUri) {
+        Object jwkSetUri = discoveryDocumentProvider.getDiscoveryDocument(issuerUri).get("jwks_uri");
+        if (jwkSetUri == null) {
+            throw new IllegalArgumentException("The public JWK set URI must not be null");
+        }
+        return jwkSetUri.toString();
+    }
+}
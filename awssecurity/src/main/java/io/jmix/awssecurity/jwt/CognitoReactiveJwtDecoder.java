@@ -0,0 +1,135 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.Nullable;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ReactiveJwtDecoder} that verifies Cognito access tokens with the given {@link JwtDecoder} using keys
+ * of {@link CognitoJwkSource}.
+ * Tokens of several user pools are supported by passing JWK sources by issuer.
+ * <p>
+ * The delegate decoder is called on the calling thread once the keys of the token are in the cached JWK set,
+ * so the same decorators (caches, precheck, revocation check) are applied as for servlet applications.
+ * If the JWK set has to be retrieved from Cognito, the blocking retrieval is performed on the bounded elastic
+ * scheduler, so event loop threads are never blocked.
+ */
+public class CognitoReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    @Nullable
+    private final CognitoJwkSource jwkSource;
+    private final Map<String, CognitoJwkSource> jwkSources;
+    private final JwtDecoder delegate;
+
+    /**
+     * @param jwkSource JWK source used by the delegate decoder
+     * @param delegate  decoder that verifies tokens with keys of the JWK source
+     */
+    public CognitoReactiveJwtDecoder(CognitoJwkSource jwkSource, JwtDecoder delegate) {
+        this.jwkSource = jwkSource;
+        this.jwkSources = Collections.emptyMap();
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates decoder for tokens of several user pools. Keys are loaded from the JWK source
+     * of the <code>iss</code> claim of the token, the delegate decoder is expected to route tokens
+     * by issuer as well, e.g. {@link IssuerRoutingJwtDecoder}.
+     *
+     * @param jwkSources JWK sources by issuer used by the delegate decoder
+     * @param delegate   decoder that verifies tokens with keys of the JWK sources
+     */
+    public CognitoReactiveJwtDecoder(Map<String, CognitoJwkSource> jwkSources, JwtDecoder delegate) {
+        this.jwkSource = null;
+        this.jwkSources = new HashMap<>(jwkSources);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        // keys are looked up on subscription, so that an unsubscribed result does not touch the JWK source
+        return Mono.defer(() -> loadKeys(token).then(Mono.fromCallable(() -> delegate.decode(token))));
+    }
+
+    private Mono<List<JWK>> loadKeys(String token) {
+        CognitoJwkSource issuerJwkSource = selectIssuerJwkSource(token);
+        JWKSelector jwkSelector = issuerJwkSource != null ? createSelector(token) : null;
+        if (jwkSelector == null || issuerJwkSource.getCachedKeys(jwkSelector) != null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> issuerJwkSource.get(jwkSelector, null))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(KeySourceException.class, e -> new JwtException(
+                        "An error occurred while attempting to decode the Jwt: " + e.getMessage(), e));
+    }
+
+    /**
+     * Returns JWK source of the token issuer or null if the issuer is unknown,
+     * in which case the delegate decoder rejects the token.
+     */
+    @Nullable
+    private CognitoJwkSource selectIssuerJwkSource(String token) {
+        if (jwkSource != null) {
+            return jwkSource;
+        }
+        Object issuer;
+        try {
+            issuer = UnverifiedClaims.parse(token).get("iss");
+        } catch (BadJwtException e) {
+            return null;
+        }
+        return issuer instanceof String ? jwkSources.get(issuer) : null;
+    }
+
+    /**
+     * Returns selector of the token keys or null if the token header is malformed,
+     * in which case the delegate decoder reports the error.
+     */
+    @Nullable
+    private JWKSelector createSelector(String token) {
+        int headerEnd = token.indexOf('.');
+        if (headerEnd <= 0) {
+            return null;
+        }
+        try {
+            JWSHeader header = JWSHeader.parse(new Base64URL(token.substring(0, headerEnd)));
+            JWKMatcher jwkMatcher = JWKMatcher.forJWSHeader(header);
+            return jwkMatcher != null ? new JWKSelector(jwkMatcher) : null;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * {@link JwtDecoder} that accepts tokens of several Cognito user pools. The decoder of the pool
+ * is selected by the <code>iss</code> claim read from the token payload before verification.
+ * <p>
+ * There is exactly one decoder per trusted issuer, created on the first token of the issuer.
+ * Decoders are never evicted, so background refresh of their JWK sets is started once per issuer.
+ * Tokens of issuers not listed as trusted are rejected without creating a decoder.
+ */
+public class IssuerRoutingJwtDecoder implements JwtDecoder {
+
+    private final Map<String, JwtDecoder> decoders;
+
+    /**
+     * @param issuers        trusted issuers
+     * @param decoderFactory creates decoder for the given issuer
+     */
+    public IssuerRoutingJwtDecoder(Collection<String> issuers, Function<String, JwtDecoder> decoderFactory) {
+        Map<String, JwtDecoder> decoders = new HashMap<>();
+        for (String issuer : issuers) {
+            decoders.put(issuer, new LazyJwtDecoder(() -> decoderFactory.apply(issuer)));
+        }
+        this.decoders = decoders;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        Object issuer = UnverifiedClaims.parse(token).get("iss");
+        JwtDecoder decoder = issuer instanceof String ? decoders.get(issuer) : null;
+        if (decoder == null) {
+            throw new BadJwtException("The iss claim is not valid");
+        }
+        return decoder.decode(token);
+    }
+}
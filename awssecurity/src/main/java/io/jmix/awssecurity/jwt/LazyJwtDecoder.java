@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link JwtDecoder} that creates the actual decoder on first use. Creation is retried on the next
+ * request if it fails.
+ */
+public class LazyJwtDecoder implements JwtDecoder {
+
+    private final Supplier<JwtDecoder> decoderSupplier;
+
+    private volatile JwtDecoder delegate;
+
+    public LazyJwtDecoder(Supplier<JwtDecoder> decoderSupplier) {
+        this.decoderSupplier = decoderSupplier;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        return getDelegate().decode(token);
+    }
+
+    private JwtDecoder getDelegate() {
+        JwtDecoder decoder = delegate;
+        if (decoder == null) {
+            synchronized (this) {
+                decoder = delegate;
+                if (decoder == null) {
+                    try {
+                        decoder = decoderSupplier.get();
+                    } catch (RuntimeException e) {
+                        throw new JwtException("Unable to create JWT decoder: " + e.getMessage(), e);
+                    }
+                    delegate = decoder;
+                }
+            }
+        }
+        return decoder;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwtDecoder} that remembers tokens which recently failed verification and rejects them without
+ * calling the delegate decoder again.
+ * <p>
+ * Tokens are keyed by SHA-256 hash of the raw token value. Only {@link BadJwtException}s are remembered,
+ * so failures caused by unavailable keys or other transient errors are not cached. Tokens signed by a key
+ * missing in the JWK set ({@link UnknownKeyIdException}) are not remembered either, so they are accepted
+ * as soon as the JWK set is refreshed.
+ */
+public class NegativeCachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, String> rejectedTokens;
+
+    /**
+     * @param delegate    decoder that verifies tokens
+     * @param timeToLive  how long a failed token is rejected without verification
+     * @param maximumSize maximum number of remembered tokens
+     */
+    public NegativeCachingJwtDecoder(JwtDecoder delegate, Duration timeToLive, long maximumSize) {
+        this.delegate = delegate;
+        this.rejectedTokens = CacheBuilder.newBuilder()
+                .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = Tokens.hash(token);
+        String error = rejectedTokens.getIfPresent(key);
+        if (error != null) {
+            throw new BadJwtException(error);
+        }
+        try {
+            return delegate.decode(token);
+        } catch (BadJwtException e) {
+            if (!isUnknownKey(e)) {
+                rejectedTokens.put(key, e.getMessage() != null ? e.getMessage() : "Invalid token");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns statistics of the cache. Hit count is the number of tokens rejected without verification.
+     */
+    public CacheStats getStats() {
+        return rejectedTokens.stats();
+    }
+
+    /**
+     * Discards all remembered tokens.
+     */
+    public void invalidateAll() {
+        rejectedTokens.invalidateAll();
+    }
+
+    private static boolean isUnknownKey(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnknownKeyIdException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * {@link JwtDecoder} that rejects tokens which are obviously not valid Cognito access tokens before passing them
+ * to the delegate decoder. Only the token payload is decoded, the checks are:
+ * <ul>
+ *     <li>token length and compact JWS format;</li>
+ *     <li><code>exp</code> claim is not in the past, taking into account the clock skew;</li>
+ *     <li><code>iss</code> claim is one of the trusted issuers;</li>
+ *     <li><code>token_use</code> claim, if present, is <code>access</code>;</li>
+ *     <li><code>client_id</code> claim is one of the allowed app clients, if they are specified.</li>
+ * </ul>
+ * Tokens passed the checks are still fully verified by the delegate.
+ */
+public class PrecheckingJwtDecoder implements JwtDecoder {
+
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(60);
+
+    private final JwtDecoder delegate;
+    private final Collection<String> issuers;
+    private final Collection<String> clientIds;
+    private final int maxTokenLength;
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * @param delegate       decoder that verifies tokens
+     * @param issuers        trusted issuers
+     * @param clientIds      allowed app client ids, empty collection means any client
+     * @param maxTokenLength maximum length of token
+     */
+    public PrecheckingJwtDecoder(JwtDecoder delegate,
+                                 Collection<String> issuers,
+                                 Collection<String> clientIds,
+                                 int maxTokenLength) {
+        this.delegate = delegate;
+        this.issuers = issuers;
+        this.clientIds = clientIds;
+        this.maxTokenLength = maxTokenLength;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (token.length() > maxTokenLength) {
+            throw new BadJwtException("Token length exceeds " + maxTokenLength);
+        }
+        Map<String, Object> claims = UnverifiedClaims.parse(token);
+
+        Object expiresAt = claims.get("exp");
+        if (!(expiresAt instanceof Number)) {
+            throw new BadJwtException("Missing exp claim");
+        }
+        if (Instant.ofEpochSecond(((Number) expiresAt).longValue()).plus(CLOCK_SKEW).isBefore(clock.instant())) {
+            throw new BadJwtException("Jwt expired");
+        }
+        if (!issuers.contains(claims.get("iss"))) {
+            throw new BadJwtException("The iss claim is not valid");
+        }
+        Object tokenUse = claims.get("token_use");
+        if (tokenUse != null && !"access".equals(tokenUse)) {
+            throw new BadJwtException("Not an access token");
+        }
+        if (!clientIds.isEmpty() && !clientIds.contains(claims.get("client_id"))) {
+            throw new BadJwtException("The client_id claim is not valid");
+        }
+        return delegate.decode(token);
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import io.jmix.awssecurity.revocation.RevokedTokenRegistry;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * {@link JwtDecoder} that rejects tokens revoked in {@link RevokedTokenRegistry}. The check is made on each decode,
+ * including tokens returned from caches of the delegate decoder.
+ */
+public class RevocationCheckingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final RevokedTokenRegistry registry;
+
+    public RevocationCheckingJwtDecoder(JwtDecoder delegate, RevokedTokenRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        Jwt jwt = delegate.decode(token);
+        if (registry.isRevoked(jwt.getId(), jwt.getSubject(), jwt.getIssuedAt())) {
+            throw new BadJwtException("Token has been revoked");
+        }
+        return jwt;
+    }
+}
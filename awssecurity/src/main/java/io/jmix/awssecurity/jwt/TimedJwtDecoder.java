@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import io.jmix.awssecurity.metrics.CognitoMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * {@link JwtDecoder} that records decoding time of the delegate decoder as {@link CognitoMetrics#JWT_DECODE}.
+ */
+public class TimedJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final CognitoMetrics metrics;
+
+    public TimedJwtDecoder(JwtDecoder delegate, CognitoMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Jwt jwt = delegate.decode(token);
+            success = true;
+            return jwt;
+        } finally {
+            metrics.recordTime(CognitoMetrics.JWT_DECODE, System.nanoTime() - start, success);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+/**
+ * Thrown by {@link CognitoJwsKeySelector} if the token is signed by a key that is missing in the JWK set
+ * even after it has been refreshed. Such failures are not remembered by {@link NegativeCachingJwtDecoder},
+ * because the key may appear in the JWK set later.
+ */
+public class UnknownKeyIdException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UnknownKeyIdException(String keyId) {
+        super("Unknown key id " + keyId);
+    }
+}
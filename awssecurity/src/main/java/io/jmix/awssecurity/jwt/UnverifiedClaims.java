@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.jwt;
+
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+
+import java.text.ParseException;
+import java.util.Map;
+
+/**
+ * Reads claims from the payload of a compact serialized JWS without parsing the header
+ * and verifying the signature. Used for cheap checks before the actual verification.
+ */
+final class UnverifiedClaims {
+
+    private UnverifiedClaims() {
+    }
+
+    /**
+     * Checks token format and returns claims of its payload.
+     *
+     * @throws BadJwtException if the token is malformed
+     */
+    static Map<String, Object> parse(String token) {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd > 0 ? token.indexOf('.', headerEnd + 1) : -1;
+        if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new BadJwtException("Malformed token");
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (!isBase64UrlChar(token.charAt(i)) && i != headerEnd && i != payloadEnd) {
+                throw new BadJwtException("Malformed token");
+            }
+        }
+        try {
+            String payload = new Base64URL(token.substring(headerEnd + 1, payloadEnd)).decodeToString();
+            return JSONObjectUtils.parse(payload);
+        } catch (ParseException e) {
+            throw new BadJwtException("Malformed payload", e);
+        }
+    }
+
+    private static boolean isBase64UrlChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.mapping;
+
+import java.util.Collection;
+
+/**
+ * Defines Jmix roles assigned to members of Cognito user groups.
+ * <p>
+ * The default implementation is {@link DefaultCognitoGroupRoleMapping}. Register a bean implementing
+ * this interface with the {@code awssec_CognitoGroupRoleMapping} name to replace it.
+ */
+public interface CognitoGroupRoleMapping {
+
+    /**
+     * Returns roles assigned to members of the given group.
+     *
+     * @param group Cognito group name
+     * @return roles, empty collection if the group is not mapped to any role
+     */
+    Collection<MappedRole> getRoles(String group);
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.mapping;
+
+import io.jmix.awssecurity.CognitoProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Maps Cognito groups to roles according to {@link CognitoProperties#getGroupMappings()} and
+ * {@link CognitoProperties#getGroupAliases()}:
+ * <ul>
+ *     <li>group is replaced with the group it is an alias of;</li>
+ *     <li>group gets roles listed for it in the mappings;</li>
+ *     <li>group gets roles listed for patterns containing <code>*</code> wildcards that match the group name;</li>
+ *     <li>if {@link CognitoProperties#isGroupPrefixConventionEnabled()}, a group named <code>resource$code</code>
+ *     or <code>row_level$code</code> gets the corresponding role.</li>
+ * </ul>
+ * Mappings are compiled on startup into a lookup table of exact group names and a list of wildcard patterns,
+ * resolved roles of each group are memoized, so repeated lookups of the same group take constant time.
+ */
+@Component("awssec_CognitoGroupRoleMapping")
+public class DefaultCognitoGroupRoleMapping implements CognitoGroupRoleMapping {
+
+    private static final int MAX_MEMOIZED_GROUPS = 10000;
+
+    @Autowired
+    protected CognitoProperties properties;
+
+    private Map<String, List<MappedRole>> exactMappings = Collections.emptyMap();
+    private List<WildcardMapping> wildcardMappings = Collections.emptyList();
+    private Map<String, String> aliases = Collections.emptyMap();
+    private final Map<String, List<MappedRole>> memoizedGroups = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    protected void init() {
+        Map<String, List<MappedRole>> exact = new HashMap<>();
+        List<WildcardMapping> wildcards = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : properties.getGroupMappings().entrySet()) {
+            List<MappedRole> roles = new ArrayList<>();
+            for (String role : entry.getValue()) {
+                roles.add(MappedRole.parse(role));
+            }
+            if (entry.getKey().indexOf('*') >= 0) {
+                wildcards.add(new WildcardMapping(compileWildcard(entry.getKey()), roles));
+            } else {
+                exact.put(entry.getKey(), Collections.unmodifiableList(roles));
+            }
+        }
+        exactMappings = exact;
+        wildcardMappings = wildcards;
+        aliases = new HashMap<>(properties.getGroupAliases());
+    }
+
+    @Override
+    public Collection<MappedRole> getRoles(String group) {
+        String name = aliases.getOrDefault(group, group);
+        List<MappedRole> roles = memoizedGroups.get(name);
+        if (roles == null) {
+            roles = resolve(name);
+            if (memoizedGroups.size() < MAX_MEMOIZED_GROUPS) {
+                memoizedGroups.put(name, roles);
+            }
+        }
+        return roles;
+    }
+
+    protected List<MappedRole> resolve(String group) {
+        Set<MappedRole> roles = new LinkedHashSet<>(exactMappings.getOrDefault(group, Collections.emptyList()));
+        for (WildcardMapping wildcardMapping : wildcardMappings) {
+            if (wildcardMapping.pattern.matcher(group).matches()) {
+                roles.addAll(wildcardMapping.roles);
+            }
+        }
+        if (properties.isGroupPrefixConventionEnabled()) {
+            MappedRole role = MappedRole.tryParse(group);
+            if (role != null) {
+                roles.add(role);
+            }
+        }
+        if (roles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(roles));
+    }
+
+    private Pattern compileWildcard(String wildcard) {
+        String[] parts = wildcard.split("\\*", -1);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            if (!parts[i].isEmpty()) {
+                regex.append(Pattern.quote(parts[i]));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static class WildcardMapping {
+
+        private final Pattern pattern;
+        private final List<MappedRole> roles;
+
+        WildcardMapping(Pattern pattern, List<MappedRole> roles) {
+            this.pattern = pattern;
+            this.roles = roles;
+        }
+    }
+}
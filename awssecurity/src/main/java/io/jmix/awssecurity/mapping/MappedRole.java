@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.mapping;
+
+import io.jmix.security.role.assignment.RoleAssignmentRoleType;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * Reference to a Jmix role by its type and code.
+ */
+public final class MappedRole {
+
+    private static final char SEPARATOR = '$';
+
+    private final String roleType;
+    private final String roleCode;
+
+    private MappedRole(String roleType, String roleCode) {
+        this.roleType = roleType;
+        this.roleCode = roleCode;
+    }
+
+    public static MappedRole resource(String roleCode) {
+        return new MappedRole(RoleAssignmentRoleType.RESOURCE, roleCode);
+    }
+
+    public static MappedRole rowLevel(String roleCode) {
+        return new MappedRole(RoleAssignmentRoleType.ROW_LEVEL, roleCode);
+    }
+
+    /**
+     * Parses role reference in the <code>resource$code</code> or <code>row_level$code</code> form.
+     *
+     * @throws IllegalArgumentException if the value has no valid role type prefix
+     */
+    public static MappedRole parse(String value) {
+        MappedRole role = tryParse(value);
+        if (role == null) {
+            throw new IllegalArgumentException("Role must be specified as resource$code or row_level$code: " + value);
+        }
+        return role;
+    }
+
+    /**
+     * Parses role reference in the <code>resource$code</code> or <code>row_level$code</code> form.
+     *
+     * @return role or null if the value has no valid role type prefix
+     */
+    @Nullable
+    public static MappedRole tryParse(String value) {
+        int separator = value.indexOf(SEPARATOR);
+        if (separator >= 0) {
+            String roleType = value.substring(0, separator);
+            String roleCode = value.substring(separator + 1);
+            if (RoleAssignmentRoleType.RESOURCE.equals(roleType) || RoleAssignmentRoleType.ROW_LEVEL.equals(roleType)) {
+                return new MappedRole(roleType, roleCode);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return one of {@link RoleAssignmentRoleType} constants
+     */
+    public String getRoleType() {
+        return roleType;
+    }
+
+    public String getRoleCode() {
+        return roleCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MappedRole that = (MappedRole) o;
+        return roleType.equals(that.roleType) && roleCode.equals(that.roleCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(roleType, roleCode);
+    }
+
+    @Override
+    public String toString() {
+        return roleType + SEPARATOR + roleCode;
+    }
+}
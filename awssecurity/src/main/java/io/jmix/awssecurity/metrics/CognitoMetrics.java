@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.metrics;
+
+import com.google.common.cache.CacheStats;
+
+import java.util.function.Supplier;
+
+/**
+ * Records timings of the Cognito authentication pipeline and statistics of its caches.
+ * <p>
+ * Components use {@link #NOOP} unless a bean named {@code awssec_CognitoMetrics} is registered, which is done
+ * by the starter if Micrometer is available and {@code jmix.awssecurity.metrics-enabled} is set.
+ */
+public interface CognitoMetrics {
+
+    /**
+     * Timer of API access token decoding, including cache lookups and signature verification.
+     */
+    String JWT_DECODE = "jmix.awssecurity.jwt.decode";
+
+    /**
+     * Timer of JWK set requests to Cognito.
+     */
+    String JWKS_FETCH = "jmix.awssecurity.jwks.fetch";
+
+    /**
+     * Timer of discovery document requests to Cognito.
+     */
+    String DISCOVERY_FETCH = "jmix.awssecurity.discovery.fetch";
+
+    /**
+     * Timer of mapping Cognito groups to authorities.
+     */
+    String GROUPS_MAPPING = "jmix.awssecurity.groups.mapping";
+
+    /**
+     * Timer of authorization code exchange requests to Cognito token endpoint.
+     */
+    String TOKEN_EXCHANGE = "jmix.awssecurity.token.exchange";
+
+    /**
+     * Timer of background access token renewal requests to Cognito token endpoint.
+     */
+    String TOKEN_REFRESH = "jmix.awssecurity.token.refresh";
+
+    /**
+     * Timer of refresh token revocation requests to Cognito revoke endpoint.
+     */
+    String TOKEN_REVOCATION = "jmix.awssecurity.token.revocation";
+
+    /**
+     * Timer of user loading on login, including requests to Cognito userinfo endpoint.
+     */
+    String USERINFO = "jmix.awssecurity.userinfo";
+
+    /**
+     * Prefix of cache meters: {@code .gets} counter tagged by {@code result} and {@code .evictions} counter.
+     */
+    String CACHE = "jmix.awssecurity.cache";
+
+    CognitoMetrics NOOP = new CognitoMetrics() {
+        @Override
+        public void recordTime(String name, long durationNanos, boolean success) {
+        }
+
+        @Override
+        public void bindCache(String cacheName, Supplier<CacheStats> stats) {
+        }
+    };
+
+    /**
+     * Records duration of an operation.
+     *
+     * @param name          timer name, one of the constants of this interface
+     * @param durationNanos duration in nanoseconds
+     * @param success       whether the operation completed successfully
+     */
+    void recordTime(String name, long durationNanos, boolean success);
+
+    /**
+     * Exposes hit, miss and eviction counts of a cache.
+     *
+     * @param cacheName cache name used as {@code cache} tag
+     * @param stats     supplier of current cache statistics
+     */
+    void bindCache(String cacheName, Supplier<CacheStats> stats);
+}
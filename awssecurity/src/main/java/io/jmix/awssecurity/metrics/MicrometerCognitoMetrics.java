@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.metrics;
+
+import com.google.common.cache.CacheStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link CognitoMetrics} that registers meters in Micrometer {@link MeterRegistry}.
+ * Timers are tagged by {@code outcome}, which is either {@code success} or {@code failure}.
+ */
+public class MicrometerCognitoMetrics implements CognitoMetrics {
+
+    private final MeterRegistry registry;
+    private final boolean histogramsEnabled;
+
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> failureTimers = new ConcurrentHashMap<>();
+    // function counters keep weak references to the observed objects
+    private final List<Supplier<CacheStats>> boundCaches = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param registry          meter registry
+     * @param histogramsEnabled whether timers publish percentile histograms
+     */
+    public MicrometerCognitoMetrics(MeterRegistry registry, boolean histogramsEnabled) {
+        this.registry = registry;
+        this.histogramsEnabled = histogramsEnabled;
+    }
+
+    @Override
+    public void recordTime(String name, long durationNanos, boolean success) {
+        Map<String, Timer> timers = success ? successTimers : failureTimers;
+        Timer timer = timers.computeIfAbsent(name, key -> Timer.builder(key)
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram(histogramsEnabled)
+                .register(registry));
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void bindCache(String cacheName, Supplier<CacheStats> stats) {
+        boundCaches.add(stats);
+        FunctionCounter.builder(CACHE + ".gets", stats, s -> s.get().hitCount())
+                .tag("cache", cacheName)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder(CACHE + ".gets", stats, s -> s.get().missCount())
+                .tag("cache", cacheName)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder(CACHE + ".evictions", stats, s -> s.get().evictionCount())
+                .tag("cache", cacheName)
+                .register(registry);
+    }
+}
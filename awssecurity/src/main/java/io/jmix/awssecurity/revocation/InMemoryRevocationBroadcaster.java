@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.revocation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link RevocationBroadcaster} that delivers revocations to listeners within the current JVM.
+ * Suitable for a single node and for tests.
+ */
+public class InMemoryRevocationBroadcaster implements RevocationBroadcaster {
+
+    private final List<Consumer<Revocation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Revocation revocation) {
+        for (Consumer<Revocation> listener : listeners) {
+            listener.accept(revocation);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Revocation> listener) {
+        listeners.add(listener);
+    }
+}
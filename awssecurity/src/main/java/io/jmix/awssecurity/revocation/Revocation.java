@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.revocation;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Revocation of a single access token identified by {@code jti} or of all access tokens of a subject
+ * issued not later than the revocation time.
+ */
+public final class Revocation implements Serializable {
+
+    private static final long serialVersionUID = 4137306592478123554L;
+
+    public enum Type {
+        /**
+         * Revocation of a token by {@code jti}, the instant is expiration time of the token.
+         */
+        TOKEN,
+        /**
+         * Revocation of tokens by {@code sub}, the instant is revocation time.
+         */
+        SUBJECT
+    }
+
+    private final Type type;
+    private final String value;
+    private final Instant instant;
+
+    public Revocation(Type type, String value, Instant instant) {
+        this.type = type;
+        this.value = value;
+        this.instant = instant;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Instant getInstant() {
+        return instant;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Revocation that = (Revocation) o;
+        return type == that.type && value.equals(that.value) && instant.equals(that.instant);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, value, instant);
+    }
+
+    @Override
+    public String toString() {
+        return type + ":" + value + "@" + instant;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.revocation;
+
+import java.util.function.Consumer;
+
+/**
+ * Spreads revocations between cluster nodes. Register a bean implementing this interface to replace
+ * {@link InMemoryRevocationBroadcaster} that only delivers revocations within the current JVM.
+ */
+public interface RevocationBroadcaster {
+
+    /**
+     * Sends revocation to all nodes, including the current one.
+     */
+    void publish(Revocation revocation);
+
+    /**
+     * Registers listener of revocations published by any node.
+     */
+    void subscribe(Consumer<Revocation> listener);
+}
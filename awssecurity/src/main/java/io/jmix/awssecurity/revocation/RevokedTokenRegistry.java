@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.revocation;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.jmix.awssecurity.CognitoProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Registry of revoked access tokens checked by the resource server.
+ * <p>
+ * Revocations are kept in time buckets by their expiry: the expiration time of a revoked token or the revocation
+ * time plus {@link CognitoProperties#getJwtRevocationRetention()} for a revoked subject. Each bucket has compact
+ * Bloom filters that answer checks of non-revoked tokens, and exact sets consulted only when a filter reports
+ * a possible match. Expired buckets are skipped and reused, so a check costs a fixed number of filter probes.
+ * <p>
+ * Revocations are spread between nodes by {@link RevocationBroadcaster}.
+ */
+@Component("awssec_RevokedTokenRegistry")
+public class RevokedTokenRegistry {
+
+    private static final int BUCKETS = 24;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    @Autowired
+    protected CognitoProperties properties;
+
+    @Autowired(required = false)
+    protected RevocationBroadcaster broadcaster = new InMemoryRevocationBroadcaster();
+
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(BUCKETS + 1);
+
+    private long bucketWidthMillis;
+
+    private Clock clock = Clock.systemUTC();
+
+    @PostConstruct
+    protected void init() {
+        bucketWidthMillis = Math.max(properties.getJwtRevocationRetention().toMillis() / BUCKETS, 1);
+        broadcaster.subscribe(this::apply);
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Revokes access token with the given {@code jti} on all nodes.
+     *
+     * @param jti       token identifier
+     * @param expiresAt token expiration time, the revocation is kept until this time
+     */
+    public void revokeToken(String jti, Instant expiresAt) {
+        broadcaster.publish(new Revocation(Revocation.Type.TOKEN, jti, expiresAt));
+    }
+
+    /**
+     * Revokes all access tokens of the subject issued not later than now on all nodes.
+     *
+     * @param sub subject
+     */
+    public void revokeSubject(String sub) {
+        broadcaster.publish(new Revocation(Revocation.Type.SUBJECT, sub, clock.instant()));
+    }
+
+    /**
+     * Adds revocation received from {@link RevocationBroadcaster} to this node.
+     */
+    public void apply(Revocation revocation) {
+        long now = clock.millis();
+        long maxExpiry = now + properties.getJwtRevocationRetention().toMillis();
+        if (revocation.getType() == Revocation.Type.TOKEN) {
+            long expiry = Math.min(revocation.getInstant().toEpochMilli(), maxExpiry);
+            Bucket bucket = getBucket(expiry, now);
+            if (bucket != null) {
+                bucket.tokens.add(revocation.getValue());
+                bucket.tokenFilter.put(revocation.getValue());
+            }
+        } else {
+            long revokedAt = revocation.getInstant().getEpochSecond();
+            long expiry = revocation.getInstant().toEpochMilli() + properties.getJwtRevocationRetention().toMillis();
+            Bucket bucket = getBucket(Math.min(expiry, maxExpiry), now);
+            if (bucket != null) {
+                bucket.subjects.merge(revocation.getValue(), revokedAt, Math::max);
+                bucket.subjectFilter.put(revocation.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns whether a token with the given claims is revoked.
+     *
+     * @param jti      token identifier
+     * @param sub      subject
+     * @param issuedAt issue time of the token
+     */
+    public boolean isRevoked(@Nullable String jti, @Nullable String sub, @Nullable Instant issuedAt) {
+        long currentEpoch = clock.millis() / bucketWidthMillis;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket == null || bucket.epoch < currentEpoch) {
+                continue;
+            }
+            if (jti != null
+                    && bucket.tokenFilter.mightContain(jti)
+                    && bucket.tokens.contains(jti)) {
+                return true;
+            }
+            if (sub != null && bucket.subjectFilter.mightContain(sub)) {
+                Long revokedAt = bucket.subjects.get(sub);
+                if (revokedAt != null && (issuedAt == null || issuedAt.getEpochSecond() <= revokedAt)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private Bucket getBucket(long expiryMillis, long nowMillis) {
+        if (expiryMillis < nowMillis) {
+            return null;
+        }
+        long epoch = expiryMillis / bucketWidthMillis;
+        int index = (int) (epoch % buckets.length());
+        while (true) {
+            Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.epoch == epoch) {
+                return bucket;
+            }
+            if (bucket != null && bucket.epoch > epoch) {
+                return null;
+            }
+            Bucket created = new Bucket(epoch, properties.getJwtRevocationExpectedInsertions());
+            if (buckets.compareAndSet(index, bucket, created)) {
+                return created;
+            }
+        }
+    }
+
+    private static class Bucket {
+
+        private final long epoch;
+        private final BloomFilter<CharSequence> tokenFilter;
+        private final BloomFilter<CharSequence> subjectFilter;
+        private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+        private final Map<String, Long> subjects = new ConcurrentHashMap<>();
+
+        private Bucket(long epoch, long expectedInsertions) {
+            this.epoch = epoch;
+            this.tokenFilter = BloomFilter.create(Funnels.unencodedCharsFunnel(), expectedInsertions,
+                    FALSE_POSITIVE_PROBABILITY);
+            this.subjectFilter = BloomFilter.create(Funnels.unencodedCharsFunnel(), expectedInsertions,
+                    FALSE_POSITIVE_PROBABILITY);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.stateless;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Clock;
+import java.util.Date;
+
+/**
+ * Encodes claims to cookie values as JWE encrypted with AES-GCM, which both hides and authenticates the content.
+ * The 256-bit key is derived from the configured secret, so all nodes sharing the secret can read each other's
+ * cookies.
+ */
+public class CognitoCookieCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(CognitoCookieCodec.class);
+
+    private final DirectEncrypter encrypter;
+    private final DirectDecrypter decrypter;
+
+    private Clock clock = Clock.systemUTC();
+
+    public CognitoCookieCodec(String secret) {
+        if (secret.isEmpty()) {
+            throw new IllegalArgumentException("Cookie secret is not set");
+        }
+        try {
+            byte[] key = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            this.encrypter = new DirectEncrypter(key);
+            this.decrypter = new DirectDecrypter(key);
+        } catch (NoSuchAlgorithmException | JOSEException e) {
+            throw new IllegalStateException("Unable to create cookie encryption key", e);
+        }
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Encrypts the given claims. Claims should contain expiration time.
+     */
+    public String encode(JWTClaimsSet claims) {
+        EncryptedJWT jwt = new EncryptedJWT(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM), claims);
+        try {
+            jwt.encrypt(encrypter);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Unable to encrypt cookie", e);
+        }
+        return jwt.serialize();
+    }
+
+    /**
+     * Decrypts the given value.
+     *
+     * @return claims or {@code null} if the value cannot be decrypted or is expired
+     */
+    @Nullable
+    public JWTClaimsSet decode(String value) {
+        JWTClaimsSet claims;
+        try {
+            EncryptedJWT jwt = EncryptedJWT.parse(value);
+            jwt.decrypt(decrypter);
+            claims = jwt.getJWTClaimsSet();
+        } catch (ParseException | JOSEException | IllegalStateException e) {
+            log.debug("Unable to decrypt cookie: {}", e.getMessage());
+            return null;
+        }
+        Date expirationTime = claims.getExpirationTime();
+        if (expirationTime == null || !expirationTime.toInstant().isAfter(clock.instant())) {
+            return null;
+        }
+        return claims;
+    }
+}
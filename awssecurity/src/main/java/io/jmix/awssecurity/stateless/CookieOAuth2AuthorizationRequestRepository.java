@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.stateless;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link AuthorizationRequestRepository} that keeps the authorization request in an encrypted cookie between
+ * the redirect to Cognito and the callback, so that the callback can be handled by any node.
+ * <p>
+ * Fields of the request are stored as JSON claims, only string values of additional parameters and attributes
+ * (state, nonce, PKCE code verifier, registration id) are kept. Cookie content is never deserialized as Java objects.
+ */
+public class CookieOAuth2AuthorizationRequestRepository
+        implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+
+    public static final String COOKIE_NAME = "AWSSEC_OAUTH2_REQUEST";
+
+    private static final String AUTHORIZATION_URI_CLAIM = "auth_uri";
+    private static final String CLIENT_ID_CLAIM = "client_id";
+    private static final String REDIRECT_URI_CLAIM = "redirect_uri";
+    private static final String SCOPES_CLAIM = "scope";
+    private static final String STATE_CLAIM = "state";
+    private static final String PARAMETERS_CLAIM = "params";
+    private static final String ATTRIBUTES_CLAIM = "attrs";
+    private static final String REQUEST_URI_CLAIM = "req_uri";
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    private final CognitoCookieCodec codec;
+
+    public CookieOAuth2AuthorizationRequestRepository(CognitoCookieCodec codec) {
+        this.codec = codec;
+    }
+
+    @Nullable
+    @Override
+    public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+        String value = Cookies.read(request, COOKIE_NAME);
+        if (value == null) {
+            return null;
+        }
+        JWTClaimsSet claims = codec.decode(value);
+        if (claims == null) {
+            return null;
+        }
+        try {
+            String authorizationUri = claims.getStringClaim(AUTHORIZATION_URI_CLAIM);
+            String clientId = claims.getStringClaim(CLIENT_ID_CLAIM);
+            if (authorizationUri == null || clientId == null) {
+                return null;
+            }
+            List<String> scopes = claims.getStringListClaim(SCOPES_CLAIM);
+            return OAuth2AuthorizationRequest.authorizationCode()
+                    .authorizationUri(authorizationUri)
+                    .clientId(clientId)
+                    .redirectUri(claims.getStringClaim(REDIRECT_URI_CLAIM))
+                    .scopes(scopes != null ? new LinkedHashSet<>(scopes) : Collections.emptySet())
+                    .state(claims.getStringClaim(STATE_CLAIM))
+                    .additionalParameters(getStringMap(claims, PARAMETERS_CLAIM))
+                    .attributes(getStringMap(claims, ATTRIBUTES_CLAIM))
+                    .authorizationRequestUri(claims.getStringClaim(REQUEST_URI_CLAIM))
+                    .build();
+        } catch (ParseException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void saveAuthorizationRequest(@Nullable OAuth2AuthorizationRequest authorizationRequest,
+                                         HttpServletRequest request, HttpServletResponse response) {
+        if (authorizationRequest == null) {
+            Cookies.clear(request, response, COOKIE_NAME);
+            return;
+        }
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .expirationTime(Date.from(codec.getClock().instant().plus(TIME_TO_LIVE)))
+                .claim(AUTHORIZATION_URI_CLAIM, authorizationRequest.getAuthorizationUri())
+                .claim(CLIENT_ID_CLAIM, authorizationRequest.getClientId())
+                .claim(REDIRECT_URI_CLAIM, authorizationRequest.getRedirectUri())
+                .claim(SCOPES_CLAIM, new ArrayList<>(authorizationRequest.getScopes()))
+                .claim(STATE_CLAIM, authorizationRequest.getState())
+                .claim(PARAMETERS_CLAIM, toStringMap(authorizationRequest.getAdditionalParameters()))
+                .claim(ATTRIBUTES_CLAIM, toStringMap(authorizationRequest.getAttributes()))
+                .claim(REQUEST_URI_CLAIM, authorizationRequest.getAuthorizationRequestUri())
+                .build();
+        Cookies.write(request, response, COOKIE_NAME, codec.encode(claims), TIME_TO_LIVE);
+    }
+
+    @Nullable
+    @Deprecated
+    @Override
+    public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request) {
+        return loadAuthorizationRequest(request);
+    }
+
+    @Nullable
+    @Override
+    public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request,
+                                                                 HttpServletResponse response) {
+        OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+        if (authorizationRequest != null) {
+            Cookies.clear(request, response, COOKIE_NAME);
+        }
+        return authorizationRequest;
+    }
+
+    private static Map<String, Object> toStringMap(Map<String, Object> map) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (entry.getValue() instanceof String) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Object> getStringMap(JWTClaimsSet claims, String name) throws ParseException {
+        Map<String, Object> map = claims.getJSONObjectClaim(name);
+        return map != null ? toStringMap(map) : Collections.emptyMap();
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.stateless;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import io.jmix.awssecurity.revocation.RevokedTokenRegistry;
+import io.jmix.awssecurity.user.CompactOAuth2AuthenticationToken;
+import io.jmix.awssecurity.user.CompactOAuth2UserDetails;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@link SecurityContextRepository} that keeps {@link CompactOAuth2AuthenticationToken} in an encrypted cookie
+ * instead of the HTTP session. On each request the cookie is decrypted and the principal is rebuilt. Role authorities
+ * of the principal are not resolved, wrap the repository with
+ * {@link io.jmix.awssecurity.user.CompactPrincipalSecurityContextRepository} to create them from Cognito groups.
+ * <p>
+ * The cookie is written when the authentication changes, e.g. on login. Other authentication types are not stored.
+ * A cookie older than half of its time to live is reissued with a new expiration time, so that the user stays
+ * logged in while active.
+ * <p>
+ * Each login gets a cookie identifier kept when the cookie is reissued. On logout the identifier is revoked
+ * in {@link RevokedTokenRegistry}, if set, so that a copy of the cookie is rejected on all nodes.
+ */
+public class CookieSecurityContextRepository implements SecurityContextRepository, LogoutHandler {
+
+    public static final String COOKIE_NAME = "AWSSEC_AUTH";
+
+    private static final String LOADED_ATTRIBUTE = CookieSecurityContextRepository.class.getName() + ".LOADED";
+
+    private static final String ATTRIBUTES_CLAIM = "attrs";
+    private static final String GROUPS_CLAIM = "groups";
+    private static final String AUTHORITIES_CLAIM = "auth";
+    private static final String REGISTRATION_CLAIM = "reg";
+
+    private final CognitoCookieCodec codec;
+    private final Duration timeToLive;
+
+    private RevokedTokenRegistry revokedTokenRegistry;
+
+    /**
+     * @param codec      codec used to encrypt the cookie
+     * @param timeToLive how long the authentication is valid after the last reissue of the cookie
+     */
+    public CookieSecurityContextRepository(CognitoCookieCodec codec, Duration timeToLive) {
+        this.codec = codec;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Sets registry used to revoke cookies on logout and check them on load.
+     */
+    public void setRevokedTokenRegistry(@Nullable RevokedTokenRegistry revokedTokenRegistry) {
+        this.revokedTokenRegistry = revokedTokenRegistry;
+    }
+
+    @Override
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        HttpServletRequest request = requestResponseHolder.getRequest();
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        JWTClaimsSet claims = readClaims(request);
+        Authentication authentication = claims != null ? toAuthentication(claims) : null;
+        if (authentication != null) {
+            context.setAuthentication(authentication);
+            request.setAttribute(LOADED_ATTRIBUTE, authentication);
+            if (isRenewalDue(claims)) {
+                Cookies.write(request, requestResponseHolder.getResponse(), COOKIE_NAME,
+                        codec.encode(reissue(claims)), timeToLive);
+            }
+        }
+        return context;
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = context.getAuthentication();
+        Object loaded = request.getAttribute(LOADED_ATTRIBUTE);
+        if (authentication == loaded || response.isCommitted()) {
+            return;
+        }
+        if (authentication instanceof CompactOAuth2AuthenticationToken) {
+            Cookies.write(request, response, COOKIE_NAME,
+                    codec.encode(toClaims((CompactOAuth2AuthenticationToken) authentication,
+                            UUID.randomUUID().toString())), timeToLive);
+            request.setAttribute(LOADED_ATTRIBUTE, authentication);
+        } else if (authentication == null && loaded != null) {
+            Cookies.clear(request, response, COOKIE_NAME);
+            request.removeAttribute(LOADED_ATTRIBUTE);
+        }
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return Cookies.read(request, COOKIE_NAME) != null;
+    }
+
+    /**
+     * Revokes the cookie of the current request and clears it. The revocation is kept for the time to live,
+     * which covers copies of the cookie reissued before the logout.
+     */
+    @Override
+    public void logout(HttpServletRequest request, HttpServletResponse response,
+                       @Nullable Authentication authentication) {
+        JWTClaimsSet claims = readClaims(request);
+        if (claims != null && claims.getJWTID() != null && revokedTokenRegistry != null) {
+            revokedTokenRegistry.revokeToken(claims.getJWTID(), codec.getClock().instant().plus(timeToLive));
+        }
+        Cookies.clear(request, response, COOKIE_NAME);
+        request.removeAttribute(LOADED_ATTRIBUTE);
+    }
+
+    protected JWTClaimsSet toClaims(CompactOAuth2AuthenticationToken authentication, String cookieId) {
+        CompactOAuth2UserDetails principal = (CompactOAuth2UserDetails) authentication.getPrincipal();
+        Instant now = codec.getClock().instant();
+        return new JWTClaimsSet.Builder()
+                .jwtID(cookieId)
+                .subject(principal.getName())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(timeToLive)))
+                .claim(REGISTRATION_CLAIM, authentication.getAuthorizedClientRegistrationId())
+                .claim(ATTRIBUTES_CLAIM, principal.getAttributes())
+                .claim(GROUPS_CLAIM, principal.getGroups())
+                .claim(AUTHORITIES_CLAIM, principal.getAuthorityNames())
+                .build();
+    }
+
+    /**
+     * Returns whether the cookie is older than half of its time to live and should be reissued.
+     */
+    protected boolean isRenewalDue(JWTClaimsSet claims) {
+        Date issueTime = claims.getIssueTime();
+        return issueTime == null
+                || issueTime.toInstant().plus(timeToLive.dividedBy(2)).isBefore(codec.getClock().instant());
+    }
+
+    protected JWTClaimsSet reissue(JWTClaimsSet claims) {
+        Instant now = codec.getClock().instant();
+        return new JWTClaimsSet.Builder(claims)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(timeToLive)))
+                .build();
+    }
+
+    @Nullable
+    protected JWTClaimsSet readClaims(HttpServletRequest request) {
+        String value = Cookies.read(request, COOKIE_NAME);
+        if (value == null) {
+            return null;
+        }
+        JWTClaimsSet claims = codec.decode(value);
+        if (claims == null || claims.getSubject() == null) {
+            return null;
+        }
+        if (revokedTokenRegistry != null && claims.getJWTID() != null
+                && revokedTokenRegistry.isRevoked(claims.getJWTID(), null, null)) {
+            return null;
+        }
+        return claims;
+    }
+
+    @Nullable
+    protected Authentication toAuthentication(JWTClaimsSet claims) {
+        try {
+            Map<String, Object> attributes = claims.getJSONObjectClaim(ATTRIBUTES_CLAIM);
+            CompactOAuth2UserDetails principal = new CompactOAuth2UserDetails(claims.getSubject(),
+                    attributes != null ? attributes : Collections.emptyMap(),
+                    getStringList(claims, GROUPS_CLAIM),
+                    getStringList(claims, AUTHORITIES_CLAIM));
+            String registrationId = claims.getStringClaim(REGISTRATION_CLAIM);
+            if (registrationId == null) {
+                return null;
+            }
+            return new CompactOAuth2AuthenticationToken(principal, registrationId);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private static List<String> getStringList(JWTClaimsSet claims, String name) throws ParseException {
+        List<String> list = claims.getStringListClaim(name);
+        return list != null ? list : new ArrayList<>();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.user;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * {@link OAuth2AuthenticationToken} that does not serialize authorities and takes them
+ * from {@link CompactOAuth2UserDetails} principal instead.
+ */
+public class CompactOAuth2AuthenticationToken extends OAuth2AuthenticationToken {
+
+    private static final long serialVersionUID = 6042213876104958227L;
+
+    public CompactOAuth2AuthenticationToken(CompactOAuth2UserDetails principal, String authorizedClientRegistrationId) {
+        super(principal, Collections.emptyList(), authorizedClientRegistrationId);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<GrantedAuthority> getAuthorities() {
+        return (Collection<GrantedAuthority>) getPrincipal().getAuthorities();
+    }
+}
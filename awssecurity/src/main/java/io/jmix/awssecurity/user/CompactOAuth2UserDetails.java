@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.user;
+
+import io.jmix.security.authentication.RoleGrantedAuthority;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compact serializable {@link OAuth2User} that keeps only the user name, selected attributes, Cognito groups
+ * and names of non-role authorities, instead of the whole user with ID token and userinfo.
+ * <p>
+ * Role authorities are not serialized. They must be rebuilt from Cognito groups with
+ * {@link #resolveAuthorities(Function)} after the principal is created or deserialized, otherwise
+ * {@link #getAuthorities()} fails.
+ *
+ * @see CompactPrincipalSecurityContextRepository
+ */
+public class CompactOAuth2UserDetails implements OAuth2User, UserDetails, Serializable {
+
+    private static final long serialVersionUID = -3190477216617011738L;
+
+    private final String username;
+    private final Map<String, Object> attributes;
+    private final List<String> groups;
+    private final List<String> authorityNames;
+
+    private transient volatile Collection<GrantedAuthority> authorities;
+
+    /**
+     * @param username       user name
+     * @param attributes     user attributes, values should be serializable
+     * @param groups         Cognito groups of the user
+     * @param authorityNames names of authorities not provided by Cognito groups, e.g. scopes
+     */
+    public CompactOAuth2UserDetails(String username,
+                                    Map<String, Object> attributes,
+                                    List<String> groups,
+                                    List<String> authorityNames) {
+        this.username = username;
+        this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+        this.groups = Collections.unmodifiableList(new ArrayList<>(groups));
+        this.authorityNames = Collections.unmodifiableList(new ArrayList<>(authorityNames));
+    }
+
+    /**
+     * Creates compact copy of the given user.
+     *
+     * @param user            user created on login
+     * @param attributeNames  names of user attributes to keep
+     * @param groupsAttribute name of attribute containing Cognito groups
+     * @return compact user
+     */
+    public static CompactOAuth2UserDetails of(OAuth2User user,
+                                              Collection<String> attributeNames,
+                                              String groupsAttribute) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (String attributeName : attributeNames) {
+            Object value = user.getAttribute(attributeName);
+            if (value instanceof Collection) {
+                List<String> items = new ArrayList<>();
+                for (Object item : (Collection<?>) value) {
+                    items.add(String.valueOf(item));
+                }
+                attributes.put(attributeName, items);
+            } else if (value instanceof Serializable) {
+                attributes.put(attributeName, value);
+            }
+        }
+        List<String> groups = new ArrayList<>();
+        Object groupsValue = user.getAttribute(groupsAttribute);
+        if (groupsValue instanceof Collection) {
+            for (Object group : (Collection<?>) groupsValue) {
+                groups.add(String.valueOf(group));
+            }
+        }
+        List<String> authorityNames = new ArrayList<>();
+        for (GrantedAuthority authority : user.getAuthorities()) {
+            if (!(authority instanceof RoleGrantedAuthority) && authority.getAuthority() != null) {
+                authorityNames.add(authority.getAuthority());
+            }
+        }
+        return new CompactOAuth2UserDetails(user.getName(), attributes, groups, authorityNames);
+    }
+
+    /**
+     * Creates authorities of the user: authorities with the stored names and authorities of Cognito groups
+     * created by the given function.
+     *
+     * @param groupAuthoritiesResolver function creating authorities of Cognito groups, e.g.
+     *                                 {@link io.jmix.awssecurity.CognitoGroupsMapper#createAuthorities(Collection)}
+     */
+    public void resolveAuthorities(
+            Function<Collection<String>, ? extends Collection<? extends GrantedAuthority>> groupAuthoritiesResolver) {
+        List<GrantedAuthority> list = new ArrayList<>();
+        for (String authorityName : authorityNames) {
+            list.add(new SimpleGrantedAuthority(authorityName));
+        }
+        if (!groups.isEmpty()) {
+            list.addAll(groupAuthoritiesResolver.apply(groups));
+        }
+        authorities = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return whether {@link #resolveAuthorities(Function)} has been called for this instance
+     */
+    public boolean isAuthoritiesResolved() {
+        return authorities != null;
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return Cognito groups of the user
+     */
+    public List<String> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return names of authorities not provided by Cognito groups
+     */
+    public List<String> getAuthorityNames() {
+        return authorityNames;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        Collection<GrantedAuthority> result = authorities;
+        if (result == null) {
+            throw new IllegalStateException("Authorities of compact principal '" + username + "' are not resolved");
+        }
+        return result;
+    }
+
+    @Override
+    public String getPassword() {
+        return "";
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return false;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return false;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.jmix.awssecurity.user;
+
+import io.jmix.awssecurity.CognitoGroupsMapper;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * {@link SecurityContextRepository} that resolves role authorities of {@link CompactOAuth2UserDetails}
+ * loaded by the delegate repository, e.g. deserialized from the HTTP session or read from a cookie.
+ */
+public class CompactPrincipalSecurityContextRepository implements SecurityContextRepository {
+
+    private final SecurityContextRepository delegate;
+    private final CognitoGroupsMapper groupsMapper;
+
+    public CompactPrincipalSecurityContextRepository(SecurityContextRepository delegate,
+                                                     CognitoGroupsMapper groupsMapper) {
+        this.delegate = delegate;
+        this.groupsMapper = groupsMapper;
+    }
+
+    @Override
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        SecurityContext context = delegate.loadContext(requestResponseHolder);
+        Authentication authentication = context.getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CompactOAuth2UserDetails) {
+            CompactOAuth2UserDetails principal = (CompactOAuth2UserDetails) authentication.getPrincipal();
+            if (!principal.isAuthoritiesResolved()) {
+                principal.resolveAuthorities(groupsMapper::createAuthorities);
+            }
+        }
+        return context;
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        delegate.saveContext(context, request, response);
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return delegate.containsContext(request);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package authorized_clients
+
+import io.jmix.awssecurity.client.BoundedOAuth2AuthorizedClientService
+import org.springframework.security.authentication.TestingAuthenticationToken
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient
+import org.springframework.security.oauth2.client.registration.ClientRegistration
+import org.springframework.security.oauth2.core.AuthorizationGrantType
+import org.springframework.security.oauth2.core.OAuth2AccessToken
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.Instant
+
+class BoundedOAuth2AuthorizedClientServiceTest extends Specification {
+
+    def "authorized client is stored by registration and principal name"() {
+        given:
+        def service = new BoundedOAuth2AuthorizedClientService(Duration.ofMinutes(1), 10)
+        def client = authorizedClient("alice")
+
+        when:
+        service.saveAuthorizedClient(client, new TestingAuthenticationToken("alice", null))
+
+        then:
+        service.loadAuthorizedClient("cognito", "alice").is(client)
+        service.loadAuthorizedClient("cognito", "bob") == null
+        service.loadAuthorizedClient("other", "alice") == null
+
+        when:
+        service.removeAuthorizedClient("cognito", "alice")
+
+        then:
+        service.loadAuthorizedClient("cognito", "alice") == null
+    }
+
+    def "number of stored clients is bounded"() {
+        given:
+        def service = new BoundedOAuth2AuthorizedClientService(Duration.ofMinutes(1), 2)
+
+        when:
+        ["alice", "bob", "carol"].each {
+            service.saveAuthorizedClient(authorizedClient(it), new TestingAuthenticationToken(it, null))
+        }
+
+        then:
+        service.size() == 2
+        service.authorizedClients.size() == 2
+    }
+
+    private static OAuth2AuthorizedClient authorizedClient(String principalName) {
+        def registration = ClientRegistration.withRegistrationId("cognito")
+                .clientId("client")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri("https://auth.example.com/oauth2/authorize")
+                .tokenUri("https://auth.example.com/oauth2/token")
+                .build()
+        def accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token-" + principalName,
+                Instant.now(), Instant.now().plusSeconds(3600))
+        new OAuth2AuthorizedClient(registration, principalName, accessToken)
+    }
+}
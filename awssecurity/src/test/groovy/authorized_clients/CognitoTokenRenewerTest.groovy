@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package authorized_clients
+
+import io.jmix.awssecurity.client.BoundedOAuth2AuthorizedClientService
+import io.jmix.awssecurity.client.CognitoTokenRenewer
+import org.springframework.security.authentication.TestingAuthenticationToken
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest
+import org.springframework.security.oauth2.client.registration.ClientRegistration
+import org.springframework.security.oauth2.core.AuthorizationGrantType
+import org.springframework.security.oauth2.core.OAuth2AccessToken
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException
+import org.springframework.security.oauth2.core.OAuth2Error
+import org.springframework.security.oauth2.core.OAuth2RefreshToken
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+
+class CognitoTokenRenewerTest extends Specification {
+
+    static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z")
+
+    OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> tokenResponseClient = Mock()
+    BoundedOAuth2AuthorizedClientService service = new BoundedOAuth2AuthorizedClientService(Duration.ofHours(1), 100)
+    CognitoTokenRenewer renewer = new CognitoTokenRenewer(service, tokenResponseClient, Duration.ofMinutes(2),
+            Duration.ofMillis(50))
+
+    def setup() {
+        renewer.clock = Clock.fixed(NOW, ZoneOffset.UTC)
+    }
+
+    def cleanup() {
+        renewer.stop()
+    }
+
+    def "access tokens expiring within renewal window are renewed in one run"() {
+        given:
+        save(authorizedClient("alice", NOW.plusSeconds(30)))
+        save(authorizedClient("bob", NOW.plusSeconds(90)))
+        save(authorizedClient("carol", NOW.plusSeconds(3600)))
+
+        when:
+        renewer.run()
+
+        then:
+        2 * tokenResponseClient.getTokenResponse(_) >> { OAuth2RefreshTokenGrantRequest request ->
+            OAuth2AccessTokenResponse.withToken("renewed-" + request.accessToken.tokenValue)
+                    .tokenType(OAuth2AccessToken.TokenType.BEARER)
+                    .expiresIn(3600)
+                    .build()
+        }
+        service.loadAuthorizedClient("cognito", "alice").accessToken.tokenValue == "renewed-token-alice"
+        service.loadAuthorizedClient("cognito", "alice").refreshToken.tokenValue == "refresh-alice"
+        service.loadAuthorizedClient("cognito", "bob").accessToken.tokenValue == "renewed-token-bob"
+        service.loadAuthorizedClient("cognito", "carol").accessToken.tokenValue == "token-carol"
+    }
+
+    def "client with revoked refresh token is removed"() {
+        given:
+        save(authorizedClient("alice", NOW.plusSeconds(30)))
+
+        when:
+        renewer.run()
+
+        then:
+        1 * tokenResponseClient.getTokenResponse(_) >> {
+            throw new OAuth2AuthorizationException(new OAuth2Error("invalid_grant"))
+        }
+        service.loadAuthorizedClient("cognito", "alice") == null
+    }
+
+    def "client is kept if renewal fails"() {
+        given:
+        def client = authorizedClient("alice", NOW.plusSeconds(30))
+        save(client)
+
+        when:
+        renewer.run()
+
+        then:
+        1 * tokenResponseClient.getTokenResponse(_) >> { throw new IllegalStateException("unavailable") }
+        service.loadAuthorizedClient("cognito", "alice").is(client)
+    }
+
+    def "started renewer runs on its own thread until stopped"() {
+        given:
+        save(authorizedClient("alice", NOW.plusSeconds(30)))
+        def threads = Collections.synchronizedSet(new HashSet<String>())
+        tokenResponseClient.getTokenResponse(_) >> {
+            threads << Thread.currentThread().name
+            throw new IllegalStateException("unavailable")
+        }
+
+        when:
+        renewer.start()
+
+        then:
+        renewer.running
+        new PollingConditions(timeout: 5).eventually {
+            assert threads == ["awssec-token-renewer-0"] as Set
+        }
+
+        when:
+        renewer.stop()
+
+        then:
+        !renewer.running
+    }
+
+    private void save(OAuth2AuthorizedClient client) {
+        service.saveAuthorizedClient(client, new TestingAuthenticationToken(client.principalName, null))
+    }
+
+    private static OAuth2AuthorizedClient authorizedClient(String principalName, Instant expiresAt) {
+        def registration = ClientRegistration.withRegistrationId("cognito")
+                .clientId("client")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri("https://auth.example.com/oauth2/authorize")
+                .tokenUri("https://auth.example.com/oauth2/token")
+                .build()
+        def accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token-" + principalName,
+                expiresAt.minusSeconds(3600), expiresAt)
+        new OAuth2AuthorizedClient(registration, principalName, accessToken,
+                new OAuth2RefreshToken("refresh-" + principalName, expiresAt.minusSeconds(3600)))
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cognito_group_role_mapping
+
+import io.jmix.awssecurity.mapping.CognitoGroupRoleMapping
+import io.jmix.awssecurity.mapping.MappedRole
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.test.context.TestPropertySource
+import test_support.CognitoSpecification
+
+@TestPropertySource(properties = [
+        "jmix.awssecurity.group-mappings[CORP-APP-ADMINS]=resource\$test-role,row_level\$test-row-level",
+        "jmix.awssecurity.group-mappings[CORP-*-USERS]=resource\$test-role",
+        "jmix.awssecurity.group-aliases[Administrators]=CORP-APP-ADMINS"
+])
+class CognitoGroupRoleMappingTest extends CognitoSpecification {
+
+    @Autowired
+    CognitoGroupRoleMapping mapping
+
+    def "group is mapped to several roles"() {
+        expect:
+        mapping.getRoles("CORP-APP-ADMINS") == [MappedRole.resource("test-role"), MappedRole.rowLevel("test-row-level")]
+    }
+
+    def "alias is mapped to roles of the group"() {
+        expect:
+        mapping.getRoles("Administrators") == mapping.getRoles("CORP-APP-ADMINS")
+    }
+
+    def "group matching wildcard is mapped to roles"() {
+        expect:
+        mapping.getRoles("CORP-SALES-USERS") == [MappedRole.resource("test-role")]
+        mapping.getRoles("CORP-SALES-ADMINS").isEmpty()
+    }
+
+    def "prefix convention is applied"() {
+        expect:
+        mapping.getRoles("row_level\$test-row-level") == [MappedRole.rowLevel("test-row-level")]
+        mapping.getRoles("unknown\$test-role").isEmpty()
+    }
+}
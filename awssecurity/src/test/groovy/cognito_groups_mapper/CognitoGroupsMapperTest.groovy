@@ -17,16 +17,37 @@
 package cognito_groups_mapper
 
 import io.jmix.awssecurity.CognitoGroupsMapper
+import io.jmix.core.Id
+import io.jmix.core.Metadata
+import io.jmix.core.event.EntityChangedEvent
+import io.jmix.core.metamodel.model.MetaClass
 import io.jmix.security.authentication.RoleGrantedAuthority
 import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.context.ApplicationEventPublisher
+import org.springframework.context.annotation.Bean
+import org.springframework.context.annotation.Configuration
 import org.springframework.security.core.GrantedAuthority
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.transaction.PlatformTransactionManager
+import org.springframework.transaction.TransactionDefinition
+import org.springframework.transaction.annotation.EnableTransactionManagement
+import org.springframework.transaction.support.AbstractPlatformTransactionManager
+import org.springframework.transaction.support.DefaultTransactionStatus
+import org.springframework.transaction.support.TransactionTemplate
 import test_support.CognitoSpecification
 
+@ContextConfiguration(classes = [TestTransactionConfiguration])
 class CognitoGroupsMapperTest extends CognitoSpecification {
 
     @Autowired
     CognitoGroupsMapper mapper
 
+    @Autowired
+    ApplicationEventPublisher eventPublisher
+
+    @Autowired
+    PlatformTransactionManager transactionManager
+
     def "resource role mapping"() {
         when:
         GrantedAuthority authority = mapper.createAuthority("resource\$test-role")
@@ -43,4 +64,108 @@ class CognitoGroupsMapperTest extends CognitoSpecification {
         then:
         authority instanceof RoleGrantedAuthority
     }
+
+    def "resolved authority is cached until invalidated"() {
+        when:
+        GrantedAuthority first = mapper.createAuthority("resource\$test-role")
+        GrantedAuthority second = mapper.createAuthority("resource\$test-role")
+
+        then:
+        first.is(second)
+
+        when:
+        mapper.invalidate()
+        GrantedAuthority third = mapper.createAuthority("resource\$test-role")
+
+        then:
+        !third.is(first)
+        third.authority == "test-role"
+    }
+
+    def "same group sets share authority list"() {
+        when:
+        List<GrantedAuthority> first = mapper.createAuthorities(["resource\$test-role", "row_level\$test-row-level"])
+        List<GrantedAuthority> second = mapper.createAuthorities(["row_level\$test-row-level", "resource\$test-role"])
+
+        then:
+        first.is(second)
+        first.size() == 2
+
+        when:
+        first.add(Mock(GrantedAuthority))
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "resolved authorities are invalidated after role change is committed"() {
+        given:
+        def metadata = mapper.metadata
+        mapper.metadata = Stub(Metadata) {
+            getClass(RoleEntity) >> Stub(MetaClass) {
+                getName() >> "sec_ResourceRoleEntity"
+            }
+        }
+        def event = Stub(EntityChangedEvent) {
+            getEntityId() >> Id.of(UUID.randomUUID(), RoleEntity)
+        }
+        def transactionTemplate = new TransactionTemplate(transactionManager)
+        GrantedAuthority first = mapper.createAuthority("resource\$test-role")
+
+        when: "role change is rolled back"
+        transactionTemplate.executeWithoutResult { status ->
+            eventPublisher.publishEvent(event)
+            status.setRollbackOnly()
+        }
+
+        then:
+        mapper.createAuthority("resource\$test-role").is(first)
+
+        when: "role change is committed"
+        GrantedAuthority beforeCommit = null
+        transactionTemplate.executeWithoutResult { status ->
+            eventPublisher.publishEvent(event)
+            beforeCommit = mapper.createAuthority("resource\$test-role")
+        }
+
+        then:
+        beforeCommit.is(first)
+        !mapper.createAuthority("resource\$test-role").is(first)
+
+        cleanup:
+        mapper.metadata = metadata
+    }
+
+    static class RoleEntity {
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TestTransactionConfiguration {
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            new TestTransactionManager()
+        }
+    }
+
+    static class TestTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            new Object()
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
 }
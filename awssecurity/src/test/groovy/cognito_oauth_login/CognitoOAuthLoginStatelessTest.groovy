@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cognito_oauth_login
+
+import io.jmix.awssecurity.stateless.CookieSecurityContextRepository
+import org.apache.http.HttpResponse
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.client.methods.HttpPost
+import org.apache.http.impl.client.BasicCookieStore
+import org.apache.http.impl.client.CloseableHttpClient
+import org.apache.http.impl.client.HttpClients
+import org.apache.http.util.EntityUtils
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.context.TestPropertySource
+import test_support.CognitoWebSpecification
+import test_support.TestCognitoStandardSecurityConfiguration
+
+import static cognito_oauth_login.CognitoOAuthLoginTest.getLocationUri
+
+@ContextConfiguration(
+        classes = [TestCognitoStandardSecurityConfiguration]
+)
+@TestPropertySource(properties = [
+        "jmix.awssecurity.stateless-enabled=true",
+        "jmix.awssecurity.stateless-cookie-secret=test-secret"
+])
+class CognitoOAuthLoginStatelessTest extends CognitoWebSpecification {
+
+    def "authentication is kept in cookie and revoked on logout"() {
+        given:
+        def cookieStore = new BasicCookieStore()
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .disableRedirectHandling()
+                .setDefaultCookieStore(cookieStore)
+                .build()
+        CloseableHttpClient otherNodeClient = HttpClients.custom()
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .build()
+
+        when: "login through Cognito hosted sign-in endpoint"
+        def response = httpClient.execute(new HttpGet("http://localhost:${port}/oauth2/authorization/cognito"))
+        EntityUtils.consume(response.entity)
+        response = httpClient.execute(new HttpGet(getLocationUri(response).toUri()))
+        EntityUtils.consume(response.entity)
+        response = httpClient.execute(new HttpGet(getLocationUri(response).toUri()))
+        EntityUtils.consume(response.entity)
+
+        then: "authentication cookie is issued"
+        response.statusLine.statusCode == 302
+        getLocationUri(response).path == "/"
+        def authCookie = cookieStore.cookies.find { it.name == CookieSecurityContextRepository.COOKIE_NAME }
+        authCookie != null
+
+        when: "request is made with the authentication cookie only"
+        def request = new HttpGet("http://localhost:${port}/test/username")
+        request.addHeader("Cookie", "${authCookie.name}=${authCookie.value}")
+        response = otherNodeClient.execute(request)
+
+        then: "user is authenticated without session"
+        response.statusLine.statusCode == 200
+        body(response) == 'test_user'
+
+        when: "user logs out"
+        response = httpClient.execute(new HttpPost("http://localhost:${port}/logout"))
+        EntityUtils.consume(response.entity)
+
+        and: "copy of the authentication cookie is used"
+        request = new HttpGet("http://localhost:${port}/test/username")
+        request.addHeader("Cookie", "${authCookie.name}=${authCookie.value}")
+        response = otherNodeClient.execute(request)
+
+        then: "copy is rejected"
+        body(response) != 'test_user'
+    }
+
+    private static String body(HttpResponse response) {
+        response.entity != null ? EntityUtils.toString(response.entity) : null
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cognito_oauth_login
+
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.impl.client.BasicCookieStore
+import org.apache.http.impl.client.CloseableHttpClient
+import org.apache.http.impl.client.HttpClients
+import org.apache.http.util.EntityUtils
+import org.mockserver.verify.VerificationTimes
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.context.TestPropertySource
+import test_support.CognitoWebSpecification
+import test_support.TestCognitoStandardSecurityConfiguration
+
+import static cognito_oauth_login.CognitoOAuthLoginTest.getLocationUri
+import static org.mockserver.model.HttpRequest.request
+
+@ContextConfiguration(
+        classes = [TestCognitoStandardSecurityConfiguration]
+)
+@TestPropertySource(properties = [
+        "jmix.awssecurity.id-token-user-enabled=true",
+        // email scope makes OidcUserService request the userinfo endpoint by default
+        "jmix.awssecurity.test.token-scope=openid email"
+])
+class CognitoOAuthLoginWithIdTokenUserTest extends CognitoWebSpecification {
+
+    def "user is created from id token"() {
+        given:
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .disableRedirectHandling()
+                .setDefaultCookieStore(new BasicCookieStore())
+                .build()
+
+        when: "login through Cognito hosted sign-in endpoint"
+        def response = httpClient.execute(new HttpGet("http://localhost:${port}/oauth2/authorization/cognito"))
+        response = httpClient.execute(new HttpGet(getLocationUri(response).toUri()))
+        response = httpClient.execute(new HttpGet(getLocationUri(response).toUri()))
+
+        then:
+        response.statusLine.statusCode == 302
+        getLocationUri(response).path == "/"
+
+        when: "execute request to test username endpoint"
+        response = httpClient.execute(new HttpGet("http://localhost:${port}/test/username"))
+
+        then: "receive user name without request to userinfo endpoint"
+        response.statusLine.statusCode == 200
+        EntityUtils.toString(response.entity) == 'test_user'
+        mockServer.verify(request().withPath("/hosted_ui/oauth2/userInfo"), VerificationTimes.exactly(0))
+    }
+}
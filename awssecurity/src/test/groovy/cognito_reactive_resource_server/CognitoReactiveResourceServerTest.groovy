@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cognito_reactive_resource_server
+
+import com.nimbusds.jwt.JWTParser
+import io.jmix.awssecurity.revocation.RevokedTokenRegistry
+import org.mockserver.integration.ClientAndServer
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.context.ApplicationContext
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.context.TestPropertySource
+import org.springframework.test.web.reactive.server.WebTestClient
+import test_support.CognitoSpecification
+import test_support.TestCognitoReactiveResourceServerConfiguration
+import test_support.TestController
+import test_support.cognito_mock.JwtHelper
+import test_support.cognito_mock.MockServerConfiguration
+
+@ContextConfiguration(
+        classes = [MockServerConfiguration, TestController, TestCognitoReactiveResourceServerConfiguration]
+)
+@TestPropertySource(properties = ["jmix.awssecurity.jwt-revocation-enabled=true"])
+class CognitoReactiveResourceServerTest extends CognitoSpecification {
+
+    @Autowired
+    ApplicationContext applicationContext
+
+    @Autowired
+    ClientAndServer mockServer
+
+    @Autowired
+    RevokedTokenRegistry revokedTokenRegistry
+
+    WebTestClient webClient
+
+    void setup() {
+        webClient = WebTestClient.bindToApplicationContext(applicationContext).build()
+    }
+
+    def "test authorized endpoint without token"() {
+        expect:
+        webClient.get().uri("/authorized/test")
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectHeader().exists("WWW-Authenticate")
+    }
+
+    def "test authorized endpoint with invalid token"() {
+        expect:
+        webClient.get().uri("/authorized/test")
+                .header("Authorization", "Bearer invalid")
+                .exchange()
+                .expectStatus().isUnauthorized()
+    }
+
+    def "test authorized endpoint with valid token"() {
+        given:
+        String token = JwtHelper.accessToken("http://localhost:${mockServer.port}/test_user_pool")
+
+        expect:
+        webClient.get().uri("/authorized/test")
+                .header("Authorization", "Bearer $token")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String).isEqualTo("authorized")
+    }
+
+    def "test authorized endpoint with revoked token"() {
+        given:
+        String token = JwtHelper.accessToken("http://localhost:${mockServer.port}/test_user_pool")
+        def claims = JWTParser.parse(token).JWTClaimsSet
+        revokedTokenRegistry.revokeToken(claims.JWTID, claims.expirationTime.toInstant())
+
+        expect:
+        webClient.get().uri("/authorized/test")
+                .header("Authorization", "Bearer $token")
+                .exchange()
+                .expectStatus().isUnauthorized()
+    }
+
+    def "test anonymous endpoint without token"() {
+        expect:
+        webClient.get().uri("/anonymous/test")
+                .exchange()
+                .expectStatus().isOk()
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cognito_resource_server
+
+import org.apache.http.client.methods.CloseableHttpResponse
+import org.apache.http.client.methods.HttpGet
+import org.apache.http.impl.client.CloseableHttpClient
+import org.apache.http.impl.client.HttpClients
+import org.apache.http.util.EntityUtils
+import org.mockserver.verify.VerificationTimes
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.context.TestPropertySource
+import test_support.CognitoWebSpecification
+import test_support.TestCognitoResourceServerConfiguration
+import test_support.cognito_mock.JwtHelper
+
+import static org.mockserver.model.HttpRequest.request
+
+@ContextConfiguration(
+        classes = [TestCognitoResourceServerConfiguration]
+)
+@TestPropertySource(properties = ["jmix.awssecurity.jwks-discovery-enabled=false"])
+class CognitoResourceServerWithoutDiscoveryTest extends CognitoWebSpecification {
+
+    def "test authorized endpoint with valid token"() {
+        given: "authorized endpoint"
+        CloseableHttpClient httpClient = HttpClients.createDefault()
+        HttpGet httpGet = new HttpGet("http://localhost:${port}/authorized/test")
+
+        and: "valid jwt token"
+        String token = JwtHelper.accessToken("http://localhost:${mockServer.port}/test_user_pool")
+        httpGet.addHeader("Authorization", "Bearer $token")
+
+        when: "execute HTTP request"
+        CloseableHttpResponse response = httpClient.execute(httpGet)
+
+        then: "receive 200 response"
+        response.statusLine.statusCode == 200
+        EntityUtils.toString(response.entity) == "authorized"
+
+        and: "discovery document is not requested"
+        mockServer.verify(request().withPath("/test_user_pool/.well-known/openid-configuration"),
+                VerificationTimes.exactly(0))
+    }
+}
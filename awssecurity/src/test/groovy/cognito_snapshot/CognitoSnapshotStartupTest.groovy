@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cognito_snapshot
+
+import io.jmix.awssecurity.CognitoClientRegistrationConfiguration
+import io.jmix.awssecurity.CognitoProperties
+import io.jmix.awssecurity.CognitoSnapshotStore
+import io.jmix.awssecurity.jwt.CognitoJwtDecoderFactory
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.context.ApplicationContextInitializer
+import org.springframework.context.ConfigurableApplicationContext
+import org.springframework.core.env.Environment
+import org.springframework.core.io.ClassPathResource
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.test.context.TestPropertySource
+import org.springframework.util.DigestUtils
+import test_support.CognitoSpecification
+import test_support.cognito_mock.JwtHelper
+import test_support.cognito_mock.Rsa256Helper
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Paths
+
+/**
+ * Starts the context from snapshots while nothing listens on the Cognito port.
+ */
+@ContextConfiguration(
+        classes = [CognitoClientRegistrationConfiguration],
+        initializers = [SnapshotInitializer]
+)
+@TestPropertySource(properties = ["jmix.awssecurity.metadata-snapshot-enabled=true"])
+class CognitoSnapshotStartupTest extends CognitoSpecification {
+
+    @Autowired
+    CognitoProperties properties
+
+    @Autowired
+    ClientRegistrationRepository clientRegistrationRepository
+
+    @Autowired
+    CognitoJwtDecoderFactory jwtDecoderFactory
+
+    def "client registration is created from snapshot"() {
+        when:
+        def registration = clientRegistrationRepository.findByRegistrationId("cognito")
+
+        then:
+        registration.providerDetails.issuerUri == properties.issuerUri
+        registration.providerDetails.tokenUri.endsWith("/hosted_ui/oauth2/token")
+        registration.providerDetails.jwkSetUri == properties.issuerUri + "/.well-known/jwks.json"
+    }
+
+    def "decoder verifies tokens with keys from snapshot"() {
+        given:
+        def decoder = jwtDecoderFactory.createJwtDecoder(properties.issuerUri)
+
+        when:
+        def jwt = decoder.decode(JwtHelper.accessToken(properties.issuerUri))
+
+        then:
+        jwt.getClaimAsString("username") == "test_user"
+    }
+
+    static class SnapshotInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+        @Override
+        void initialize(ConfigurableApplicationContext applicationContext) {
+            // the issuer port is assigned by TestContextInitializer, so snapshots are written before beans are created
+            applicationContext.addBeanFactoryPostProcessor { writeSnapshots(applicationContext.environment) }
+        }
+
+        private static void writeSnapshots(Environment environment) {
+            def port = environment.getProperty("jmix.awssecurity.test.mock-server-port")
+            def issuer = "http://localhost:$port/test_user_pool"
+            write(environment, CognitoSnapshotStore.OPENID_CONFIGURATION, issuer,
+                    read("mock_server/openid-configuration.json").replace("{port}", port))
+            write(environment, CognitoSnapshotStore.JWKS, "$issuer/.well-known/jwks.json",
+                    read("mock_server/jwks.json")
+                            .replace("{exponent}", Rsa256Helper.publicKeyExponent())
+                            .replace("{modulus}", Rsa256Helper.publicKeyModulus()))
+        }
+
+        private static String read(String path) {
+            new String(new ClassPathResource(path).inputStream.bytes, StandardCharsets.UTF_8)
+        }
+
+        private static void write(Environment environment, String type, String uri, String content) {
+            def fileName = type + "-" + DigestUtils.md5DigestAsHex(uri.getBytes(StandardCharsets.UTF_8)) + ".json"
+            def file = Paths.get(environment.getProperty("jmix.core.work-dir"), "awssecurity", fileName)
+            Files.createDirectories(file.parent)
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8))
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cognito_snapshot
+
+import io.jmix.awssecurity.CognitoSnapshotStore
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.test.context.TestPropertySource
+import test_support.CognitoSpecification
+
+@TestPropertySource(properties = ["jmix.awssecurity.metadata-snapshot-enabled=true"])
+class CognitoSnapshotStoreTest extends CognitoSpecification {
+
+    @Autowired
+    CognitoSnapshotStore snapshotStore
+
+    def "saved snapshot is loaded"() {
+        given:
+        def uri = "http://localhost/test_user_pool/.well-known/jwks.json"
+
+        when:
+        snapshotStore.save(CognitoSnapshotStore.JWKS, uri, '{"keys":[]}')
+
+        then:
+        snapshotStore.load(CognitoSnapshotStore.JWKS, uri) == '{"keys":[]}'
+        snapshotStore.load(CognitoSnapshotStore.OPENID_CONFIGURATION, uri) == null
+        snapshotStore.load(CognitoSnapshotStore.JWKS, "http://localhost/other_pool/.well-known/jwks.json") == null
+    }
+}
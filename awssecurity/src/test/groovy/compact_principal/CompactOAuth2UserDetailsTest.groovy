@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package compact_principal
+
+import io.jmix.awssecurity.CognitoGroupsMapper
+import io.jmix.awssecurity.user.CompactOAuth2AuthenticationToken
+import io.jmix.awssecurity.user.CompactOAuth2UserDetails
+import io.jmix.awssecurity.user.CompactPrincipalSecurityContextRepository
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.security.core.authority.SimpleGrantedAuthority
+import org.springframework.security.core.context.SecurityContextImpl
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User
+import org.springframework.security.web.context.HttpRequestResponseHolder
+import org.springframework.security.web.context.SecurityContextRepository
+import spock.lang.Specification
+
+class CompactOAuth2UserDetailsTest extends Specification {
+
+    def "compact user keeps selected attributes and rebuilds authorities after deserialization"() {
+        given:
+        def user = new DefaultOAuth2User([new SimpleGrantedAuthority("SCOPE_openid")],
+                ["cognito:username": "test_user", email: "test@example.com", "cognito:groups": ["admins"],
+                 address: [street: "Main"]],
+                "cognito:username")
+
+        when:
+        def compact = CompactOAuth2UserDetails.of(user, ["email", "address", "cognito:username"], "cognito:groups")
+        def restored = deserialize(serialize(compact))
+        restored.resolveAuthorities({ groups -> groups.collect { new SimpleGrantedAuthority("GROUP_" + it) } })
+
+        then:
+        restored.username == "test_user"
+        restored.attributes == ["cognito:username": "test_user", email: "test@example.com", address: [street: "Main"]]
+        restored.groups == ["admins"]
+        restored.authorities*.authority == ["SCOPE_openid", "GROUP_admins"]
+    }
+
+    def "unresolved authorities are not silently empty"() {
+        given:
+        def restored = deserialize(serialize(new CompactOAuth2UserDetails("alice", [:], ["admins"], [])))
+
+        when:
+        restored.authorities
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "repository resolves authorities of loaded compact principal with groups mapper"() {
+        given:
+        def principal = deserialize(serialize(new CompactOAuth2UserDetails("alice", [:], ["admins"], ["SCOPE_openid"])))
+        def delegate = Stub(SecurityContextRepository) {
+            loadContext(_) >> new SecurityContextImpl(new CompactOAuth2AuthenticationToken(principal, "cognito"))
+        }
+        def groupsMapper = Stub(CognitoGroupsMapper) {
+            createAuthorities(["admins"]) >> [new SimpleGrantedAuthority("ROLE_admin")]
+        }
+        def repository = new CompactPrincipalSecurityContextRepository(delegate, groupsMapper)
+
+        when:
+        def context = repository.loadContext(
+                new HttpRequestResponseHolder(new MockHttpServletRequest(), new MockHttpServletResponse()))
+
+        then:
+        context.authentication.authorities*.authority == ["SCOPE_openid", "ROLE_admin"]
+    }
+
+    private static byte[] serialize(Object object) {
+        def bytes = new ByteArrayOutputStream()
+        new ObjectOutputStream(bytes).withCloseable { it.writeObject(object) }
+        bytes.toByteArray()
+    }
+
+    private static CompactOAuth2UserDetails deserialize(byte[] bytes) {
+        new ObjectInputStream(new ByteArrayInputStream(bytes)).withCloseable { it.readObject() } as CompactOAuth2UserDetails
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package discovery_document
+
+import io.jmix.awssecurity.CognitoDiscoveryDocumentProvider
+import io.jmix.awssecurity.CognitoProperties
+import io.jmix.awssecurity.CognitoSnapshotStore
+import io.jmix.awssecurity.metrics.CognitoMetrics
+import org.springframework.http.HttpStatus
+import org.springframework.http.RequestEntity
+import org.springframework.http.ResponseEntity
+import org.springframework.web.client.HttpClientErrorException
+import org.springframework.web.client.ResourceAccessException
+import org.springframework.web.client.RestOperations
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class CognitoDiscoveryDocumentProviderTest extends Specification {
+
+    static final String ISSUER = "https://cognito-idp.eu-west-1.amazonaws.com/pool"
+    static final String OTHER_ISSUER = "https://cognito-idp.eu-west-1.amazonaws.com/other"
+
+    RestOperations restOperations = Mock()
+    CognitoDiscoveryDocumentProvider provider = new CognitoDiscoveryDocumentProvider()
+
+    def setup() {
+        provider.restOperations = restOperations
+        provider.snapshotStore = Stub(CognitoSnapshotStore)
+        provider.properties = Stub(CognitoProperties) {
+            getDiscoveryMaxAttempts() >> 3
+            getDiscoveryRetryBackoff() >> Duration.ofMillis(1)
+        }
+    }
+
+    def "document is retrieved once after transient failures"() {
+        when:
+        def document = provider.getDiscoveryDocument(ISSUER)
+
+        then:
+        2 * restOperations.exchange(_, String) >> { throw new ResourceAccessException("timeout") }
+        1 * restOperations.exchange(_, String) >> ResponseEntity.ok("{\"issuer\": \"$ISSUER\"}".toString())
+        document.issuer == ISSUER
+
+        when:
+        provider.getDiscoveryDocument(ISSUER)
+
+        then:
+        0 * restOperations.exchange(_, _)
+    }
+
+    def "retrieval fails after max attempts"() {
+        when:
+        provider.getDiscoveryDocument(ISSUER)
+
+        then:
+        3 * restOperations.exchange(_, String) >> { throw new ResourceAccessException("timeout") }
+        thrown(IllegalArgumentException)
+    }
+
+    def "client errors are not retried"() {
+        when:
+        provider.getDiscoveryDocument(ISSUER)
+
+        then:
+        1 * restOperations.exchange(_, String) >> { throw new HttpClientErrorException(HttpStatus.NOT_FOUND) }
+        thrown(IllegalArgumentException)
+    }
+
+    def "empty document is recorded as failed request"() {
+        given:
+        def metrics = Mock(CognitoMetrics)
+        provider.metrics = metrics
+
+        when:
+        provider.getDiscoveryDocument(ISSUER)
+
+        then:
+        1 * restOperations.exchange(_, String) >> ResponseEntity.ok().build()
+        1 * metrics.recordTime(CognitoMetrics.DISCOVERY_FETCH, _, false)
+        0 * metrics.recordTime(_, _, true)
+        thrown(IllegalArgumentException)
+    }
+
+    def "slow retrieval blocks only callers of the same issuer"() {
+        given:
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def requests = new AtomicInteger()
+        provider.restOperations = Stub(RestOperations) {
+            exchange(_, String) >> { args ->
+                def uri = (args[0] as RequestEntity).url.toString()
+                if (uri.startsWith(ISSUER)) {
+                    requests.incrementAndGet()
+                    started.countDown()
+                    release.await(5, TimeUnit.SECONDS)
+                    return ResponseEntity.ok("{\"issuer\": \"$ISSUER\"}".toString())
+                }
+                ResponseEntity.ok("{\"issuer\": \"$OTHER_ISSUER\"}".toString())
+            }
+        }
+
+        when:
+        def first = CompletableFuture.supplyAsync { provider.getDiscoveryDocument(ISSUER) }
+        started.await(5, TimeUnit.SECONDS)
+        def second = CompletableFuture.supplyAsync { provider.getDiscoveryDocument(ISSUER) }
+        def other = provider.getDiscoveryDocument(OTHER_ISSUER)
+
+        then:
+        other.issuer == OTHER_ISSUER
+        !first.done
+        !second.done
+
+        when:
+        release.countDown()
+
+        then:
+        first.get(5, TimeUnit.SECONDS).issuer == ISSUER
+        second.get(5, TimeUnit.SECONDS).issuer == ISSUER
+        requests.get() == 1
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package http_client
+
+import io.jmix.awssecurity.CognitoHttpClient
+import io.jmix.awssecurity.CognitoProperties
+import org.apache.http.conn.ConnectionPoolTimeoutException
+import org.mockserver.integration.ClientAndServer
+import org.mockserver.model.Delay
+import org.springframework.util.SocketUtils
+import org.springframework.web.client.ResourceAccessException
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+import static org.mockserver.model.HttpRequest.request
+import static org.mockserver.model.HttpResponse.response
+
+class CognitoHttpClientTest extends Specification {
+
+    int port = SocketUtils.findAvailableTcpPort()
+
+    ClientAndServer mockServer = ClientAndServer.startClientAndServer(port)
+
+    CognitoHttpClient httpClient = new CognitoHttpClient()
+
+    void setup() {
+        httpClient.properties = Stub(CognitoProperties) {
+            getHttpConnectTimeout() >> Duration.ofMillis(300)
+            getHttpReadTimeout() >> Duration.ofMillis(300)
+            getHttpConnectionTtl() >> Duration.ofMinutes(1)
+            getHttpMaxConnections() >> 1
+            getHttpMaxConnectionsPerRoute() >> 1
+        }
+        mockServer.when(request().withPath("/slow"))
+                .respond(response("{}").withDelay(new Delay(TimeUnit.SECONDS, 3)))
+    }
+
+    void cleanup() {
+        httpClient.destroy()
+        mockServer.stop()
+    }
+
+    def "read timeout is applied"() {
+        given:
+        def restTemplate = httpClient.createRestTemplate()
+        long start = System.nanoTime()
+
+        when:
+        restTemplate.getForObject("http://localhost:${port}/slow", String)
+
+        then:
+        def e = thrown(ResourceAccessException)
+        e.cause instanceof SocketTimeoutException
+        Duration.ofNanos(System.nanoTime() - start) < Duration.ofSeconds(2)
+    }
+
+    def "waiting for pooled connection is limited by connect timeout"() {
+        given:
+        def restTemplate = httpClient.createRestTemplate()
+        def url = "http://localhost:${port}/slow"
+        def busy = CompletableFuture.runAsync {
+            try {
+                restTemplate.getForObject(url, String)
+            } catch (ResourceAccessException ignored) {
+            }
+        }
+        Thread.sleep(100)
+        long start = System.nanoTime()
+
+        when: "the only connection of the pool is busy"
+        restTemplate.getForObject(url, String)
+
+        then:
+        def e = thrown(ResourceAccessException)
+        e.cause instanceof ConnectionPoolTimeoutException
+        Duration.ofNanos(System.nanoTime() - start) < Duration.ofSeconds(2)
+
+        cleanup:
+        busy.join()
+    }
+}
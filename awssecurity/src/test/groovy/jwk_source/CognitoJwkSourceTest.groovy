@@ -0,0 +1,203 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jwk_source
+
+import com.nimbusds.jose.KeySourceException
+import com.nimbusds.jose.jwk.JWKMatcher
+import com.nimbusds.jose.jwk.JWKSelector
+import com.nimbusds.jose.jwk.JWKSet
+import com.nimbusds.jose.jwk.RSAKey
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator
+import io.jmix.awssecurity.CognitoSnapshotStore
+import io.jmix.awssecurity.jwt.CognitoJwkSource
+import org.springframework.web.client.RestTemplate
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+
+class CognitoJwkSourceTest extends Specification {
+
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor()
+
+    RSAKey oldKey = new RSAKeyGenerator(2048).keyID("old_key").generate().toPublicJWK()
+    RSAKey newKey = new RSAKeyGenerator(2048).keyID("new_key").generate().toPublicJWK()
+
+    void cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "old keys are dropped after rotation"() {
+        given:
+        def source = new TestJwkSource(executor, [new JWKSet(oldKey), new JWKSet(newKey)])
+        def removals = 0
+        source.keysRemovedListener = { removals++ } as Runnable
+
+        when:
+        def initial = source.getJwkSet()
+        def rotated = source.refresh().get()
+
+        then:
+        initial.getKeyByKeyId("old_key") != null
+        rotated.getKeyByKeyId("new_key") != null
+        rotated.getKeyByKeyId("old_key") == null
+        source.getJwkSet().getKeyByKeyId("old_key") == null
+        source.fetchCount == 2
+        removals == 1
+    }
+
+    def "cached keys are served when refresh fails"() {
+        given:
+        def source = new TestJwkSource(executor, [new JWKSet(oldKey)])
+        def now = Instant.now()
+        source.setClock(Clock.fixed(now, ZoneOffset.UTC))
+        source.getJwkSet()
+
+        when: "JWK set cannot be retrieved"
+        source.failure = new IOException("Connection refused")
+        source.setClock(Clock.fixed(now.plus(Duration.ofHours(2)), ZoneOffset.UTC))
+        def keys = source.get(selector("old_key"), null)
+
+        then: "stale keys are still served"
+        keys.size() == 1
+
+        when: "cached JWK set exceeds maximum staleness"
+        source.setClock(Clock.fixed(now.plus(Duration.ofHours(25)), ZoneOffset.UTC))
+        source.get(selector("old_key"), null)
+
+        then:
+        thrown(KeySourceException)
+    }
+
+    def "failing revalidation is not repeated on every request"() {
+        given:
+        def source = new TestJwkSource(executor, [new JWKSet(oldKey)])
+        def now = Instant.now()
+        source.setClock(Clock.fixed(now, ZoneOffset.UTC))
+        source.getJwkSet()
+
+        when: "cached JWK set is older than refresh interval and the endpoint fails fast"
+        source.failure = new IOException("Connection refused")
+        source.setClock(Clock.fixed(now.plus(Duration.ofHours(2)), ZoneOffset.UTC))
+        def results = (1..100).collect {
+            Thread.sleep(1)
+            source.getJwkSet()
+        }
+
+        then: "cached keys are served and the endpoint is requested once"
+        results.every { it.getKeyByKeyId("old_key") != null }
+        new PollingConditions(timeout: 5).eventually {
+            assert source.fetchCount == 2
+        }
+
+        when: "rate limit interval has passed"
+        source.setClock(Clock.fixed(now.plus(Duration.ofHours(2)).plusSeconds(60), ZoneOffset.UTC))
+        source.getJwkSet()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert source.fetchCount == 3
+        }
+    }
+
+    def "unknown key id triggers refresh"() {
+        given:
+        def source = new TestJwkSource(executor, [new JWKSet(oldKey), new JWKSet([oldKey, newKey])])
+        def now = Instant.now()
+        source.setClock(Clock.fixed(now, ZoneOffset.UTC))
+
+        when: "known key is requested"
+        def keys = source.get(selector("old_key"), null)
+
+        then:
+        keys.size() == 1
+        source.fetchCount == 1
+
+        when: "unknown key is requested right after the previous refresh"
+        keys = source.get(selector("new_key"), null)
+
+        then: "refresh is not performed"
+        keys.isEmpty()
+        source.fetchCount == 1
+
+        when: "unknown key is requested later"
+        source.setClock(Clock.fixed(now.plusSeconds(60), ZoneOffset.UTC))
+        keys = source.get(selector("new_key"), null)
+
+        then: "JWK set is refreshed"
+        keys.size() == 1
+        source.fetchCount == 2
+    }
+
+    def "snapshot is used within maximum staleness since it has been saved"() {
+        given:
+        def now = Instant.now()
+        def source = new TestJwkSource(executor, [new JWKSet(oldKey)])
+        source.failure = new IOException("Connection refused")
+        source.setClock(Clock.fixed(now, ZoneOffset.UTC))
+        source.setSnapshotStore(Stub(CognitoSnapshotStore) {
+            loadSnapshot(CognitoSnapshotStore.JWKS, _) >> new CognitoSnapshotStore.Snapshot(
+                    new JWKSet(oldKey).toString(), now.minus(savedAgo))
+        })
+
+        when:
+        def keys = source.get(selector("old_key"), null)
+
+        then:
+        keys.size() == 1
+
+        when:
+        source.setClock(Clock.fixed(now.plus(Duration.ofHours(24)), ZoneOffset.UTC))
+        source.get(selector("old_key"), null)
+
+        then: "snapshot age counts from the time it has been saved"
+        thrown(KeySourceException)
+
+        where:
+        savedAgo << [Duration.ofMinutes(5), Duration.ofHours(2)]
+    }
+
+    static JWKSelector selector(String keyId) {
+        new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build())
+    }
+
+    static class TestJwkSource extends CognitoJwkSource {
+
+        List<JWKSet> responses
+        volatile int fetchCount
+        volatile IOException failure
+
+        TestJwkSource(ScheduledExecutorService executor, List<JWKSet> responses) {
+            super("http://localhost/jwks.json", new RestTemplate(), executor, Duration.ofHours(1), Duration.ofHours(24))
+            this.responses = new ArrayList<>(responses)
+        }
+
+        @Override
+        protected JWKSet fetchJwkSet() {
+            fetchCount++
+            if (failure != null) {
+                throw failure
+            }
+            return responses.size() > 1 ? responses.remove(0) : responses[0]
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jwk_source
+
+import com.nimbusds.jose.JWSAlgorithm
+import com.nimbusds.jose.JWSHeader
+import com.nimbusds.jose.jwk.JWKSet
+import com.nimbusds.jose.jwk.RSAKey
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator
+import io.jmix.awssecurity.jwt.CognitoJwsKeySelector
+import io.jmix.awssecurity.jwt.UnknownKeyIdException
+import spock.lang.Specification
+
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+
+class CognitoJwsKeySelectorTest extends Specification {
+
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor()
+
+    RSAKey key = new RSAKeyGenerator(2048).keyID("test_key").generate().toPublicJWK()
+
+    void cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "keys and verifiers are reused"() {
+        given:
+        def source = new CognitoJwkSourceTest.TestJwkSource(executor, [new JWKSet(key)])
+        def selector = new CognitoJwsKeySelector(source)
+        def header = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("test_key").build()
+
+        when:
+        def first = selector.selectJWSKeys(header, null)
+        def second = selector.selectJWSKeys(header, null)
+
+        then:
+        first.size() == 1
+        first[0].is(second[0])
+        selector.verifierFactory.createJWSVerifier(header, first[0])
+                .is(selector.verifierFactory.createJWSVerifier(header, second[0]))
+    }
+
+    def "unsupported algorithm is not selected"() {
+        given:
+        def source = new CognitoJwkSourceTest.TestJwkSource(executor, [new JWKSet(key)])
+        def selector = new CognitoJwsKeySelector(source)
+
+        expect:
+        selector.selectJWSKeys(new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("test_key").build(), null)
+                .isEmpty()
+    }
+
+    def "unknown key is reported"() {
+        given:
+        def source = new CognitoJwkSourceTest.TestJwkSource(executor, [new JWKSet(key)])
+        def selector = new CognitoJwsKeySelector(source)
+
+        when:
+        selector.selectJWSKeys(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("unknown_key").build(), null)
+
+        then:
+        thrown(UnknownKeyIdException)
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jwt_cache
+
+import io.jmix.awssecurity.jwt.CachingJwtDecoder
+import org.springframework.security.oauth2.jwt.BadJwtException
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.security.oauth2.jwt.JwtDecoder
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+
+class CachingJwtDecoderTest extends Specification {
+
+    JwtDecoder delegate = Mock()
+
+    def "decoded token is returned from cache"() {
+        given:
+        def decoder = new CachingJwtDecoder(delegate, Duration.ofHours(1), 10)
+        def jwt = jwt("token", Instant.now().plusSeconds(3600))
+
+        when:
+        def first = decoder.decode("token")
+        def second = decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> jwt
+        first.is(jwt)
+        second.is(jwt)
+    }
+
+    def "expired token is not returned from cache"() {
+        given:
+        def expiresAt = Instant.now().plusSeconds(60)
+        def decoder = new CachingJwtDecoder(delegate, Duration.ofHours(1), 10)
+        def jwt = jwt("token", expiresAt)
+
+        when:
+        decoder.decode("token")
+        decoder.setClock(Clock.fixed(expiresAt.plusSeconds(1), ZoneOffset.UTC))
+        decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> jwt
+
+        then:
+        1 * delegate.decode("token") >> { throw new BadJwtException("expired") }
+        thrown(BadJwtException)
+    }
+
+    def "token is cached not longer than time to live"() {
+        given:
+        def decoder = new CachingJwtDecoder(delegate, Duration.ofMillis(50), 10)
+        def jwt = jwt("token", Instant.now().plusSeconds(3600))
+
+        when:
+        decoder.decode("token")
+        Thread.sleep(100)
+        decoder.decode("token")
+
+        then:
+        2 * delegate.decode("token") >> jwt
+    }
+
+    def "failed verification is not cached"() {
+        given:
+        def decoder = new CachingJwtDecoder(delegate, Duration.ofHours(1), 10)
+
+        when:
+        decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> { throw new BadJwtException("invalid") }
+        thrown(BadJwtException)
+
+        when:
+        def result = decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> jwt("token", Instant.now().plusSeconds(3600))
+        result.tokenValue == "token"
+    }
+
+    static Jwt jwt(String token, Instant expiresAt) {
+        Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("test_user")
+                .issuedAt(expiresAt.minusSeconds(3600))
+                .expiresAt(expiresAt)
+                .build()
+    }
+}
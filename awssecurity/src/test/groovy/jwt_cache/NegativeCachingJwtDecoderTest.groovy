@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jwt_cache
+
+import io.jmix.awssecurity.jwt.NegativeCachingJwtDecoder
+import io.jmix.awssecurity.jwt.UnknownKeyIdException
+import org.springframework.security.oauth2.jwt.BadJwtException
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.security.oauth2.jwt.JwtDecoder
+import org.springframework.security.oauth2.jwt.JwtException
+import spock.lang.Specification
+
+import java.time.Duration
+
+class NegativeCachingJwtDecoderTest extends Specification {
+
+    JwtDecoder delegate = Mock()
+
+    def "token that failed verification is rejected without verification"() {
+        given:
+        def decoder = new NegativeCachingJwtDecoder(delegate, Duration.ofMinutes(1), 10)
+
+        when:
+        decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> { throw new BadJwtException("invalid") }
+        thrown(BadJwtException)
+
+        when:
+        decoder.decode("token")
+
+        then:
+        0 * delegate.decode(_)
+        def e = thrown(BadJwtException)
+        e.message == "invalid"
+        decoder.stats.hitCount() == 1
+    }
+
+    def "transient failure is not remembered"() {
+        given:
+        def decoder = new NegativeCachingJwtDecoder(delegate, Duration.ofMinutes(1), 10)
+
+        when:
+        decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> { throw new JwtException("keys are not available") }
+        thrown(JwtException)
+
+        when:
+        decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> Mock(Jwt)
+        noExceptionThrown()
+    }
+
+    def "failure caused by unknown key is not remembered"() {
+        given:
+        def decoder = new NegativeCachingJwtDecoder(delegate, Duration.ofMinutes(1), 10)
+
+        when:
+        decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> {
+            throw new BadJwtException("Failed to validate the token", new UnknownKeyIdException("new_key"))
+        }
+        thrown(BadJwtException)
+
+        when: "the key appears in the JWK set"
+        decoder.decode("token")
+
+        then:
+        1 * delegate.decode("token") >> Mock(Jwt)
+        noExceptionThrown()
+    }
+}
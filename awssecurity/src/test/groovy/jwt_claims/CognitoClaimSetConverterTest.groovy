@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jwt_claims
+
+import io.jmix.awssecurity.jwt.CognitoClaimSetConverter
+import spock.lang.Specification
+
+import java.time.Instant
+
+class CognitoClaimSetConverterTest extends Specification {
+
+    def "required claims are converted"() {
+        given:
+        def converter = new CognitoClaimSetConverter()
+        def expiresAt = new Date(1_700_000_000_000L)
+
+        when:
+        def claims = converter.convert([iss: "issuer", sub: "subject", exp: expiresAt, iat: 1_600_000_000L,
+                                        custom: [a: 1]])
+
+        then:
+        claims.iss == "issuer"
+        claims.sub == "subject"
+        claims.exp == Instant.ofEpochMilli(1_700_000_000_000L)
+        claims.iat == Instant.ofEpochSecond(1_600_000_000L)
+        claims.custom == [a: 1]
+    }
+
+    def "equal group lists share one instance"() {
+        given:
+        def converter = new CognitoClaimSetConverter()
+
+        when:
+        def first = converter.convert(["cognito:groups": [new String("admins"), new String("users")]])
+        def second = converter.convert(["cognito:groups": [new String("admins"), new String("users")]])
+
+        then:
+        first["cognito:groups"] == ["admins", "users"]
+        first["cognito:groups"].is(second["cognito:groups"])
+    }
+
+    def "only retained and required claims are kept"() {
+        given:
+        def converter = new CognitoClaimSetConverter(["email"])
+
+        when:
+        def claims = converter.convert([sub: "subject", email: "user@example.com", custom: "value"])
+
+        then:
+        claims.keySet() == ["sub", "email"] as Set
+    }
+}
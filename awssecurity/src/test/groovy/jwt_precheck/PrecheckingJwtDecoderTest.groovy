@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jwt_precheck
+
+import com.nimbusds.jose.util.Base64URL
+import io.jmix.awssecurity.jwt.PrecheckingJwtDecoder
+import org.springframework.security.oauth2.jwt.BadJwtException
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.security.oauth2.jwt.JwtDecoder
+import spock.lang.Specification
+
+import java.time.Instant
+
+class PrecheckingJwtDecoderTest extends Specification {
+
+    static final String ISSUER = "https://cognito-idp.eu-west-1.amazonaws.com/pool"
+
+    JwtDecoder delegate = Mock()
+
+    def "valid access token is passed to delegate"() {
+        given:
+        def decoder = new PrecheckingJwtDecoder(delegate, [ISSUER], ["client"], 8192)
+        def token = token(iss: ISSUER, exp: future(), token_use: "access", client_id: "client")
+
+        when:
+        decoder.decode(token)
+
+        then:
+        1 * delegate.decode(token) >> Mock(Jwt)
+    }
+
+    def "token is rejected without verification"() {
+        given:
+        def decoder = new PrecheckingJwtDecoder(delegate, [ISSUER], ["client"], 8192)
+
+        when:
+        decoder.decode(token)
+
+        then:
+        0 * delegate.decode(_)
+        thrown(BadJwtException)
+
+        where:
+        token << [
+                "not a token",
+                "a.b.c.d.e",
+                "a" * 9000,
+                token(iss: ISSUER, exp: Instant.now().minusSeconds(600).epochSecond, client_id: "client"),
+                token(iss: "https://example.com", exp: future(), client_id: "client"),
+                token(iss: ISSUER, exp: future(), token_use: "id", client_id: "client"),
+                token(iss: ISSUER, exp: future(), client_id: "other"),
+                token(iss: ISSUER, client_id: "client")
+        ]
+    }
+
+    def "any client is accepted if allowed clients are not specified"() {
+        given:
+        def decoder = new PrecheckingJwtDecoder(delegate, [ISSUER], [], 8192)
+        def token = token(iss: ISSUER, exp: future(), client_id: "other")
+
+        when:
+        decoder.decode(token)
+
+        then:
+        1 * delegate.decode(token) >> Mock(Jwt)
+    }
+
+    private static long future() {
+        Instant.now().plusSeconds(3600).epochSecond
+    }
+
+    private static String token(Map<String, Object> claims) {
+        def payload = Base64URL.encode(groovy.json.JsonOutput.toJson(claims))
+        "eyJhbGciOiJSUzI1NiJ9.${payload}.c2lnbmF0dXJl"
+    }
+}
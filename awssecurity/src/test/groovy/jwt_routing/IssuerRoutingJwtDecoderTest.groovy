@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package jwt_routing
+
+import com.nimbusds.jose.util.Base64URL
+import io.jmix.awssecurity.jwt.IssuerRoutingJwtDecoder
+import org.springframework.security.oauth2.jwt.BadJwtException
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.security.oauth2.jwt.JwtDecoder
+import org.springframework.security.oauth2.jwt.JwtException
+import spock.lang.Specification
+
+import java.util.function.Function
+
+class IssuerRoutingJwtDecoderTest extends Specification {
+
+    static final String STAFF = "https://cognito-idp.eu-west-1.amazonaws.com/staff"
+    static final String PARTNERS = "https://cognito-idp.eu-west-1.amazonaws.com/partners"
+
+    JwtDecoder staffDecoder = Mock()
+    JwtDecoder partnersDecoder = Mock()
+    Function<String, JwtDecoder> factory = Mock()
+
+    def "token is decoded by the decoder of its issuer created on first use"() {
+        given:
+        def decoder = new IssuerRoutingJwtDecoder([STAFF, PARTNERS], factory)
+        def staffToken = token(STAFF)
+        def partnersToken = token(PARTNERS)
+
+        when:
+        decoder.decode(staffToken)
+        decoder.decode(staffToken)
+        decoder.decode(partnersToken)
+
+        then:
+        1 * factory.apply(STAFF) >> staffDecoder
+        1 * factory.apply(PARTNERS) >> partnersDecoder
+        2 * staffDecoder.decode(staffToken) >> Mock(Jwt)
+        1 * partnersDecoder.decode(partnersToken) >> Mock(Jwt)
+    }
+
+    def "token of unknown issuer is rejected"() {
+        given:
+        def decoder = new IssuerRoutingJwtDecoder([STAFF], factory)
+
+        when:
+        decoder.decode(token("https://example.com"))
+
+        then:
+        0 * factory.apply(_)
+        thrown(BadJwtException)
+    }
+
+    def "decoder creation is retried after failure"() {
+        given:
+        def decoder = new IssuerRoutingJwtDecoder([STAFF], factory)
+        def staffToken = token(STAFF)
+
+        when:
+        decoder.decode(staffToken)
+
+        then:
+        1 * factory.apply(STAFF) >> { throw new IllegalArgumentException("Unable to resolve the Configuration") }
+        thrown(JwtException)
+
+        when:
+        decoder.decode(staffToken)
+
+        then:
+        1 * factory.apply(STAFF) >> staffDecoder
+        1 * staffDecoder.decode(staffToken) >> Mock(Jwt)
+    }
+
+    private static String token(String issuer) {
+        def payload = Base64URL.encode(groovy.json.JsonOutput.toJson([iss: issuer]))
+        "eyJhbGciOiJSUzI1NiJ9.${payload}.c2lnbmF0dXJl"
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package reactive_jwt_decoder
+
+import com.nimbusds.jose.jwk.JWKSet
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator
+import io.jmix.awssecurity.jwt.CognitoJwkSource
+import io.jmix.awssecurity.jwt.CognitoReactiveJwtDecoder
+import org.springframework.security.oauth2.jwt.BadJwtException
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.security.oauth2.jwt.JwtDecoder
+import org.springframework.web.client.RestTemplate
+import spock.lang.Specification
+import test_support.cognito_mock.JwtHelper
+
+import java.time.Duration
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+
+class CognitoReactiveJwtDecoderTest extends Specification {
+
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor()
+
+    JwtDecoder delegate = Mock()
+
+    TestJwkSource jwkSource = new TestJwkSource(executor)
+
+    CognitoReactiveJwtDecoder decoder = new CognitoReactiveJwtDecoder(jwkSource, delegate)
+
+    Jwt jwt = Jwt.withTokenValue("token").header("alg", "RS256").subject("test_user").build()
+
+    void cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "JWK source is not used until the result is subscribed"() {
+        given:
+        def token = JwtHelper.accessToken("http://localhost/test_user_pool")
+        def mockJwkSource = Mock(CognitoJwkSource)
+        def lazyDecoder = new CognitoReactiveJwtDecoder(mockJwkSource, delegate)
+
+        when:
+        def result = lazyDecoder.decode(token)
+
+        then:
+        result != null
+        0 * mockJwkSource._
+        0 * delegate._
+    }
+
+    def "delegate is called on the calling thread when keys are cached"() {
+        given:
+        def token = JwtHelper.accessToken("http://localhost/test_user_pool")
+        jwkSource.getJwkSet()
+        String delegateThread = null
+
+        when:
+        def result = decoder.decode(token).block()
+
+        then:
+        1 * delegate.decode(token) >> {
+            delegateThread = Thread.currentThread().name
+            jwt
+        }
+        result == jwt
+        delegateThread == Thread.currentThread().name
+        jwkSource.fetchThreads.size() == 1
+    }
+
+    def "JWK set is retrieved on bounded elastic scheduler"() {
+        given:
+        def token = JwtHelper.accessToken("http://localhost/test_user_pool")
+
+        when:
+        def result = decoder.decode(token).block()
+
+        then:
+        1 * delegate.decode(token) >> jwt
+        result == jwt
+        jwkSource.fetchThreads.size() == 1
+        jwkSource.fetchThreads[0] != Thread.currentThread().name
+        jwkSource.awaitThreads.every { it.startsWith("boundedElastic") }
+    }
+
+    def "keys are loaded from the JWK source of the token issuer"() {
+        given:
+        def otherJwkSource = new TestJwkSource(executor)
+        def routingDecoder = new CognitoReactiveJwtDecoder(
+                ["http://localhost/test_user_pool": jwkSource, "http://localhost/other_user_pool": otherJwkSource],
+                delegate)
+        def token = JwtHelper.accessToken("http://localhost/other_user_pool")
+
+        when:
+        def result = routingDecoder.decode(token).block()
+
+        then:
+        1 * delegate.decode(token) >> jwt
+        result == jwt
+        otherJwkSource.fetchThreads.size() == 1
+        jwkSource.fetchThreads.isEmpty()
+    }
+
+    def "token of unknown issuer is passed to delegate without loading keys"() {
+        given:
+        def routingDecoder = new CognitoReactiveJwtDecoder(["http://localhost/test_user_pool": jwkSource], delegate)
+        def token = JwtHelper.accessToken("http://localhost/unknown_user_pool")
+
+        when:
+        routingDecoder.decode(token).block()
+
+        then:
+        1 * delegate.decode(token) >> { throw new BadJwtException("The iss claim is not valid") }
+        thrown(BadJwtException)
+        jwkSource.fetchThreads.isEmpty()
+    }
+
+    def "errors of delegate are propagated"() {
+        when:
+        decoder.decode("invalid").block()
+
+        then:
+        1 * delegate.decode("invalid") >> { throw new BadJwtException("Malformed token") }
+        thrown(BadJwtException)
+        jwkSource.fetchThreads.isEmpty()
+    }
+
+    static class TestJwkSource extends CognitoJwkSource {
+
+        List<String> fetchThreads = Collections.synchronizedList([])
+        List<String> awaitThreads = Collections.synchronizedList([])
+
+        TestJwkSource(ScheduledExecutorService executor) {
+            super("http://localhost/jwks.json", new RestTemplate(), executor, Duration.ofHours(1), Duration.ofHours(24))
+        }
+
+        @Override
+        JWKSet getJwkSet() {
+            awaitThreads << Thread.currentThread().name
+            return super.getJwkSet()
+        }
+
+        @Override
+        protected JWKSet fetchJwkSet() {
+            fetchThreads << Thread.currentThread().name
+            return new JWKSet(new RSAKeyGenerator(2048).keyID("test_key").generate().toPublicJWK())
+        }
+    }
+}
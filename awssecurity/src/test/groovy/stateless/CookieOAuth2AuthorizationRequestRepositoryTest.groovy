@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stateless
+
+import io.jmix.awssecurity.stateless.CognitoCookieCodec
+import io.jmix.awssecurity.stateless.CookieOAuth2AuthorizationRequestRepository
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest
+import spock.lang.Specification
+
+import javax.servlet.http.Cookie
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+
+class CookieOAuth2AuthorizationRequestRepositoryTest extends Specification {
+
+    static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z")
+
+    CognitoCookieCodec codec = new CognitoCookieCodec("test-secret")
+    CookieOAuth2AuthorizationRequestRepository repository = new CookieOAuth2AuthorizationRequestRepository(codec)
+
+    def setup() {
+        codec.clock = Clock.fixed(NOW, ZoneOffset.UTC)
+    }
+
+    def "authorization request is restored from cookie"() {
+        given:
+        def authorizationRequest = OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri("https://auth.example.com/oauth2/authorize")
+                .clientId("test_client")
+                .redirectUri("http://localhost:8080/login/oauth2/code/cognito")
+                .scopes(["openid", "email"] as Set)
+                .state("state-value")
+                .additionalParameters([nonce: "nonce-hash", code_challenge: "challenge"])
+                .attributes([registration_id: "cognito", nonce: "nonce-value", code_verifier: "verifier"])
+                .build()
+
+        when:
+        def restored = load(save(authorizationRequest))
+
+        then:
+        restored.authorizationUri == authorizationRequest.authorizationUri
+        restored.grantType == authorizationRequest.grantType
+        restored.responseType == authorizationRequest.responseType
+        restored.clientId == "test_client"
+        restored.redirectUri == authorizationRequest.redirectUri
+        restored.scopes == ["openid", "email"] as Set
+        restored.state == "state-value"
+        restored.additionalParameters == [nonce: "nonce-hash", code_challenge: "challenge"]
+        restored.attributes == [registration_id: "cognito", nonce: "nonce-value", code_verifier: "verifier"]
+        restored.authorizationRequestUri == authorizationRequest.authorizationRequestUri
+    }
+
+    def "tampered or expired cookie is ignored"() {
+        given:
+        def cookie = save(OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri("https://auth.example.com/oauth2/authorize")
+                .clientId("test_client")
+                .state("state-value")
+                .build())
+
+        expect:
+        load(cookie.substring(0, cookie.length() - 2) + "AA") == null
+
+        when:
+        codec.clock = Clock.fixed(NOW.plus(Duration.ofMinutes(10)), ZoneOffset.UTC)
+
+        then:
+        load(cookie) == null
+    }
+
+    def "cookie is cleared when authorization request is removed"() {
+        given:
+        def cookie = save(OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri("https://auth.example.com/oauth2/authorize")
+                .clientId("test_client")
+                .state("state-value")
+                .build())
+        def request = new MockHttpServletRequest()
+        request.setCookies(new Cookie(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME, cookie))
+        def response = new MockHttpServletResponse()
+
+        when:
+        def removed = repository.removeAuthorizationRequest(request, response)
+
+        then:
+        removed.state == "state-value"
+        response.getCookie(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME).maxAge == 0
+    }
+
+    private String save(OAuth2AuthorizationRequest authorizationRequest) {
+        def response = new MockHttpServletResponse()
+        repository.saveAuthorizationRequest(authorizationRequest, new MockHttpServletRequest(), response)
+        response.getCookie(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME).value
+    }
+
+    private OAuth2AuthorizationRequest load(String cookie) {
+        def request = new MockHttpServletRequest()
+        request.setCookies(new Cookie(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME, cookie))
+        repository.loadAuthorizationRequest(request)
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stateless
+
+import io.jmix.awssecurity.CognitoProperties
+import io.jmix.awssecurity.revocation.RevokedTokenRegistry
+import io.jmix.awssecurity.stateless.CognitoCookieCodec
+import io.jmix.awssecurity.stateless.CookieSecurityContextRepository
+import io.jmix.awssecurity.user.CompactOAuth2AuthenticationToken
+import io.jmix.awssecurity.user.CompactOAuth2UserDetails
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.security.core.context.SecurityContextImpl
+import org.springframework.security.web.context.HttpRequestResponseHolder
+import spock.lang.Specification
+
+import javax.servlet.http.Cookie
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+
+class CookieSecurityContextRepositoryTest extends Specification {
+
+    static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z")
+
+    CognitoCookieCodec codec = new CognitoCookieCodec("test-secret")
+    CookieSecurityContextRepository repository = new CookieSecurityContextRepository(codec, Duration.ofHours(1))
+
+    def setup() {
+        codec.clock = Clock.fixed(NOW, ZoneOffset.UTC)
+    }
+
+    def "authentication is restored from cookie"() {
+        given:
+        def cookie = saveAuthentication()
+
+        when:
+        def request = new MockHttpServletRequest()
+        request.setCookies(new Cookie(CookieSecurityContextRepository.COOKIE_NAME, cookie))
+        def context = repository.loadContext(new HttpRequestResponseHolder(request, new MockHttpServletResponse()))
+
+        then:
+        context.authentication instanceof CompactOAuth2AuthenticationToken
+        context.authentication.name == "alice"
+        context.authentication.authorizedClientRegistrationId == "cognito"
+        def principal = context.authentication.principal as CompactOAuth2UserDetails
+        principal.getAttribute("email") == "alice@example.com"
+        principal.groups == ["admins"]
+        principal.authorityNames == ["SCOPE_openid"]
+    }
+
+    def "tampered or expired cookie is ignored"() {
+        given:
+        def cookie = saveAuthentication()
+
+        expect:
+        load(cookie.substring(0, cookie.length() - 2) + "AA") == null
+
+        when:
+        codec.clock = Clock.fixed(NOW.plus(Duration.ofHours(2)), ZoneOffset.UTC)
+
+        then:
+        load(cookie) == null
+    }
+
+    def "cookie encrypted with another secret is ignored"() {
+        given:
+        def cookie = saveAuthentication()
+        def otherRepository = new CookieSecurityContextRepository(new CognitoCookieCodec("other"), Duration.ofHours(1))
+        def request = new MockHttpServletRequest()
+        request.setCookies(new Cookie(CookieSecurityContextRepository.COOKIE_NAME, cookie))
+
+        expect:
+        otherRepository.loadContext(new HttpRequestResponseHolder(request, new MockHttpServletResponse()))
+                .authentication == null
+    }
+
+    def "cookie is reissued after half of its time to live"() {
+        given:
+        def cookie = saveAuthentication()
+
+        expect: "cookie is not reissued while it is fresh"
+        loadResponse(cookie).getCookie(CookieSecurityContextRepository.COOKIE_NAME) == null
+
+        when: "cookie is used after half of its time to live"
+        codec.clock = Clock.fixed(NOW.plus(Duration.ofMinutes(40)), ZoneOffset.UTC)
+        def reissued = loadResponse(cookie).getCookie(CookieSecurityContextRepository.COOKIE_NAME)
+
+        then:
+        reissued != null
+        reissued.maxAge == Duration.ofHours(1).seconds
+
+        when: "reissued cookie is used after the original one has expired"
+        codec.clock = Clock.fixed(NOW.plus(Duration.ofMinutes(90)), ZoneOffset.UTC)
+
+        then:
+        load(cookie) == null
+        load(reissued.value).name == "alice"
+    }
+
+    def "cookie is revoked on logout"() {
+        given:
+        def registry = new RevokedTokenRegistry()
+        registry.properties = Stub(CognitoProperties) {
+            getJwtRevocationRetention() >> Duration.ofHours(24)
+            getJwtRevocationExpectedInsertions() >> 100L
+        }
+        registry.clock = Clock.fixed(NOW, ZoneOffset.UTC)
+        registry.init()
+        repository.revokedTokenRegistry = registry
+        def cookie = saveAuthentication()
+        def otherCookie = saveAuthentication()
+        def request = new MockHttpServletRequest()
+        request.setCookies(new Cookie(CookieSecurityContextRepository.COOKIE_NAME, cookie))
+        def response = new MockHttpServletResponse()
+
+        when:
+        repository.logout(request, response, null)
+
+        then: "copy of the cookie is rejected, other logins are kept"
+        response.getCookie(CookieSecurityContextRepository.COOKIE_NAME).maxAge == 0
+        load(cookie) == null
+        load(otherCookie).name == "alice"
+    }
+
+    private String saveAuthentication() {
+        def principal = new CompactOAuth2UserDetails("alice", [email: "alice@example.com"], ["admins"], ["SCOPE_openid"])
+        def response = new MockHttpServletResponse()
+        repository.saveContext(new SecurityContextImpl(new CompactOAuth2AuthenticationToken(principal, "cognito")),
+                new MockHttpServletRequest(), response)
+        response.getCookie(CookieSecurityContextRepository.COOKIE_NAME).value
+    }
+
+    private MockHttpServletResponse loadResponse(String cookie) {
+        def request = new MockHttpServletRequest()
+        request.setCookies(new Cookie(CookieSecurityContextRepository.COOKIE_NAME, cookie))
+        def response = new MockHttpServletResponse()
+        repository.loadContext(new HttpRequestResponseHolder(request, response))
+        response
+    }
+
+    private Object load(String cookie) {
+        def request = new MockHttpServletRequest()
+        request.setCookies(new Cookie(CookieSecurityContextRepository.COOKIE_NAME, cookie))
+        repository.loadContext(new HttpRequestResponseHolder(request, new MockHttpServletResponse())).authentication
+    }
+}
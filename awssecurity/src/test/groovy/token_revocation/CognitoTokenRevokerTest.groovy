@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package token_revocation
+
+import io.jmix.awssecurity.CognitoHttpClient
+import io.jmix.awssecurity.CognitoProperties
+import io.jmix.awssecurity.CognitoTokenRevoker
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpStatus
+import org.springframework.http.RequestEntity
+import org.springframework.http.ResponseEntity
+import org.springframework.web.client.HttpClientErrorException
+import org.springframework.web.client.ResourceAccessException
+import org.springframework.web.client.RestOperations
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+class CognitoTokenRevokerTest extends Specification {
+
+    RestOperations restOperations = Mock()
+    CognitoTokenRevoker revoker = new CognitoTokenRevoker()
+
+    def setup() {
+        revoker.properties = Stub(CognitoProperties) {
+            getDomain() >> "https://auth.example.com"
+            getClientId() >> "client"
+            getClientSecret() >> "secret"
+            getTokenRevocationMaxAttempts() >> 2
+            getTokenRevocationQueueCapacity() >> 2
+        }
+        revoker.httpClient = Stub(CognitoHttpClient)
+        revoker.init()
+        revoker.restOperations = restOperations
+    }
+
+    def cleanup() {
+        revoker.destroy()
+    }
+
+    def "refresh tokens are revoked in background"() {
+        given:
+        def requests = new CopyOnWriteArrayList<RequestEntity>()
+        def threads = new CopyOnWriteArrayList<String>()
+        restOperations.exchange(_, Void) >> { RequestEntity request, Class type ->
+            requests.add(request)
+            threads.add(Thread.currentThread().name)
+            ResponseEntity.ok().build()
+        }
+
+        when:
+        def queued = revoker.revoke("token-1") && revoker.revoke("token-2")
+
+        then:
+        queued
+        new PollingConditions(timeout: 5).eventually {
+            assert requests*.body*.getFirst("token") as Set == ["token-1", "token-2"] as Set
+        }
+        requests[0].url.toString() == "https://auth.example.com/oauth2/revoke"
+        requests[0].headers.getFirst(HttpHeaders.AUTHORIZATION).startsWith("Basic ")
+        threads as Set == ["awssec-token-revoker-0"] as Set
+    }
+
+    def "failed revocation is retried"() {
+        given:
+        def attempts = new AtomicInteger()
+        restOperations.exchange(_, Void) >> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ResourceAccessException("timeout")
+            }
+            ResponseEntity.ok().build()
+        }
+
+        when:
+        revoker.revoke("token")
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            assert attempts.get() == 2
+        }
+    }
+
+    def "client errors are not retried"() {
+        given:
+        def attempts = new AtomicInteger()
+        restOperations.exchange(_, Void) >> {
+            attempts.incrementAndGet()
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST)
+        }
+
+        when:
+        revoker.revoke("token")
+        Thread.sleep(1500)
+
+        then:
+        attempts.get() == 1
+    }
+
+    def "token is not queued if queue is full"() {
+        given:
+        restOperations.exchange(_, Void) >> { ResponseEntity.ok().build() }
+
+        expect:
+        revoker.revoke("token-1")
+        revoker.revoke("token-2")
+        !revoker.revoke("token-3")
+    }
+}
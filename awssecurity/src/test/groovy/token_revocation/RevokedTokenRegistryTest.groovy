@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package token_revocation
+
+import io.jmix.awssecurity.CognitoProperties
+import io.jmix.awssecurity.jwt.RevocationCheckingJwtDecoder
+import io.jmix.awssecurity.revocation.InMemoryRevocationBroadcaster
+import io.jmix.awssecurity.revocation.RevokedTokenRegistry
+import org.springframework.security.oauth2.jwt.BadJwtException
+import org.springframework.security.oauth2.jwt.Jwt
+import org.springframework.security.oauth2.jwt.JwtDecoder
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+
+class RevokedTokenRegistryTest extends Specification {
+
+    static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z")
+
+    InMemoryRevocationBroadcaster broadcaster = new InMemoryRevocationBroadcaster()
+
+    def "revoked token is rejected until it expires"() {
+        given:
+        def registry = createRegistry()
+
+        when:
+        registry.revokeToken("jti-1", NOW.plusSeconds(600))
+
+        then:
+        registry.isRevoked("jti-1", "alice", NOW.minusSeconds(10))
+        !registry.isRevoked("jti-2", "alice", NOW.minusSeconds(10))
+
+        when:
+        registry.clock = Clock.fixed(NOW.plus(Duration.ofHours(1)), ZoneOffset.UTC)
+
+        then:
+        !registry.isRevoked("jti-1", "alice", NOW.minusSeconds(10))
+    }
+
+    def "tokens of revoked subject issued before revocation are rejected"() {
+        given:
+        def registry = createRegistry()
+
+        when:
+        registry.revokeSubject("alice")
+
+        then:
+        registry.isRevoked("jti-1", "alice", NOW.minusSeconds(10))
+        !registry.isRevoked("jti-2", "alice", NOW.plusSeconds(10))
+        !registry.isRevoked("jti-1", "bob", NOW.minusSeconds(10))
+    }
+
+    def "revocation is spread to other registries"() {
+        given:
+        def registry = createRegistry()
+        def otherRegistry = createRegistry()
+
+        when:
+        registry.revokeSubject("alice")
+
+        then:
+        otherRegistry.isRevoked(null, "alice", NOW.minusSeconds(10))
+    }
+
+    def "decoder rejects revoked token"() {
+        given:
+        def registry = createRegistry()
+        def jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("alice")
+                .issuedAt(NOW.minusSeconds(10))
+                .build()
+        def decoder = new RevocationCheckingJwtDecoder(Stub(JwtDecoder) { decode("token") >> jwt }, registry)
+
+        expect:
+        decoder.decode("token").is(jwt)
+
+        when:
+        registry.revokeSubject("alice")
+        decoder.decode("token")
+
+        then:
+        thrown(BadJwtException)
+    }
+
+    private RevokedTokenRegistry createRegistry() {
+        def registry = new RevokedTokenRegistry()
+        registry.properties = Stub(CognitoProperties) {
+            getJwtRevocationRetention() >> Duration.ofHours(24)
+            getJwtRevocationExpectedInsertions() >> 100L
+        }
+        registry.broadcaster = broadcaster
+        registry.clock = Clock.fixed(NOW, ZoneOffset.UTC)
+        registry.init()
+        registry
+    }
+}
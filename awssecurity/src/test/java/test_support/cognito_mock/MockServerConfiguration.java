@@ -18,6 +18,7 @@ package test_support.cognito_mock;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.nimbusds.jwt.JWTParser;
 import org.apache.commons.io.FileUtils;
 import org.mockserver.integration.ClientAndServer;
 import org.mockserver.model.Parameter;
@@ -45,10 +46,15 @@ public class MockServerConfiguration {
     @Value("${jmix.awssecurity.test.mock-server-port}")
     private int port;
 
+    @Value("${jmix.awssecurity.test.token-scope:}")
+    private String tokenScope;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     private final Map<String, String> nonces = new HashMap<>();
 
+    private final Map<String, String> subjects = new HashMap<>();
+
     @Bean
     public ClientAndServer mockServer() throws Exception {
         ClientAndServer mockServer = ClientAndServer.startClientAndServer(port);
@@ -116,11 +122,38 @@ public class MockServerConfiguration {
                 }
                 LocalDateTime now = LocalDateTime.now();
                 String issuer = "http://localhost:" + port + "/test_user_pool";
+                String accessToken = JwtHelper.accessToken(issuer, now);
+                String idToken = JwtHelper.idToken(issuer, now, nonce);
+                subjects.put(accessToken, JWTParser.parse(idToken).getJWTClaimsSet().getSubject());
+                Map<String, Object> tokenResponse = new LinkedHashMap<>();
+                tokenResponse.put("access_token", accessToken);
+                tokenResponse.put("id_token", idToken);
+                tokenResponse.put("expires_in", 3600);
+                tokenResponse.put("token_type", "Bearer");
+                if (!tokenScope.isEmpty()) {
+                    tokenResponse.put("scope", tokenScope);
+                }
+                String body = objectMapper.writeValueAsString(tokenResponse);
+                return response(body).withHeader("Content-Type", "application/json");
+            } catch (Exception e) {
+                return response().withStatusCode(500);
+            }
+        });
+        mockServer.when(request()
+                .withMethod("GET")
+                .withPath("/hosted_ui/oauth2/userInfo")
+        ).callback(httpRequest -> {
+            String authorization = httpRequest.getFirstHeader("Authorization");
+            String subject = subjects.get(authorization.replaceFirst("^Bearer ", ""));
+            if (subject == null) {
+                return response().withStatusCode(401);
+            }
+            try {
                 String body = objectMapper.writeValueAsString(ImmutableMap.of(
-                        "access_token", JwtHelper.accessToken(issuer, now),
-                        "id_token", JwtHelper.idToken(issuer, now, nonce),
-                        "expires_in", 3600,
-                        "token_type", "Bearer"
+                        "sub", subject,
+                        "cognito:username", "test_user",
+                        "email", "test@test.com",
+                        "email_verified", "true"
                 ));
                 return response(body).withHeader("Content-Type", "application/json");
             } catch (Exception e) {